@@ -0,0 +1,72 @@
+package com.example.webfluxplay.api;
+
+import com.example.webfluxplay.model.SomeEntity;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * JSON encode/decode of {@link SomeEntity} through the same WebFlux codecs the handler uses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SomeEntityJsonBenchmark {
+
+  private static final ResolvableType ENTITY = ResolvableType.forClass(SomeEntity.class);
+
+  @Param({"1", "100", "1000"})
+  public int listSize;
+
+  private final DefaultDataBufferFactory bufferFactory = DefaultDataBufferFactory.sharedInstance;
+  private final Jackson2JsonEncoder encoder = new Jackson2JsonEncoder();
+  private final Jackson2JsonDecoder decoder = new Jackson2JsonDecoder();
+
+  private List<SomeEntity> entities;
+  private byte[] json;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    entities = IntStream.range(0, listSize)
+        .mapToObj(i -> {
+          SomeEntity e = new SomeEntity();
+          e.setId((long) i);
+          e.setSvalue("value-" + i);
+          return e;
+        })
+        .toList();
+    json = DataBufferUtils.join(encoder.encode(Flux.fromIterable(entities), bufferFactory, ENTITY,
+            MediaType.APPLICATION_JSON, Collections.emptyMap()))
+        .map(buffer -> buffer.toString(StandardCharsets.UTF_8))
+        .block()
+        .getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public int encode() {
+    return DataBufferUtils.join(encoder.encode(Flux.fromIterable(entities), bufferFactory, ENTITY,
+            MediaType.APPLICATION_JSON, Collections.emptyMap()))
+        .map(DataBuffer::readableByteCount)
+        .block();
+  }
+
+  @Benchmark
+  public List<Object> decode() {
+    return decoder.decode(Mono.just(bufferFactory.wrap(json)), ENTITY, MediaType.APPLICATION_JSON, Collections.emptyMap())
+        .collectList()
+        .block();
+  }
+}
@@ -0,0 +1,31 @@
+package com.example.webfluxplay.dao;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Builds a {@link SomeEntityDao} on a private in-memory H2 database, outside of Spring.
+ */
+final class BenchmarkDaos {
+
+  private BenchmarkDaos() {
+  }
+
+  static SomeEntityDao h2(String database, boolean cacheEnabled) {
+    ConnectionPoolProperties pool = new ConnectionPoolProperties();
+    pool.setName(database);
+    pool.setUrl("r2dbc:h2:mem:///" + database + "?options=DB_CLOSE_DELAY=-1");
+    pool.setUsername("sa");
+    pool.setPassword("");
+
+    CacheProperties cache = new CacheProperties();
+    cache.setEnabled(cacheEnabled);
+
+    BatchingProperties batching = new BatchingProperties();
+    batching.getReads().setEnabled(false);
+
+    SomeEntityDao dao = new SomeEntityDao(new H2Dialect(), pool, cache, batching, new BulkInsertProperties(),
+        new ChangeStreamProperties(), new ReplicaProperties(), new IdProperties(), new SimpleMeterRegistry());
+    dao.initialize().block();
+    return dao;
+  }
+}
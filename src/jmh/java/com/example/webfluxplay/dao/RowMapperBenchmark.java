@@ -0,0 +1,36 @@
+package com.example.webfluxplay.dao;
+
+import com.example.webfluxplay.model.SomeEntity;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RowMapperBenchmark {
+
+  private final Row row = new Row() {
+    @Override
+    public RowMetadata getMetadata() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T> T get(int index, Class<T> type) {
+      return type.cast(index == 0 ? (Object) 42L : "some value");
+    }
+
+    @Override
+    public <T> T get(String name, Class<T> type) {
+      return type.cast("id".equals(name) ? (Object) 42L : "some value");
+    }
+  };
+
+  @Benchmark
+  public SomeEntity map() {
+    return SomeEntityDao.MAPPER.apply(row, null);
+  }
+}
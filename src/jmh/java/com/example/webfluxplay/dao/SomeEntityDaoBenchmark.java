@@ -0,0 +1,96 @@
+package com.example.webfluxplay.dao;
+
+import com.example.webfluxplay.model.SomeEntity;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SomeEntityDaoBenchmark {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  @Param({"10000"})
+  public int tableRows;
+
+  private SomeEntityDao dao;
+  private Long existingId;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    dao = BenchmarkDaos.h2("bench_dao", false);
+    Flux.range(0, tableRows / 500)
+        .concatMap(i -> dao.saveAll(entities(500)))
+        .blockLast();
+    existingId = dao.findPage(0, 1).blockFirst().getId();
+  }
+
+  @Benchmark
+  public SomeEntity update() {
+    SomeEntity payload = new SomeEntity();
+    payload.setId(existingId);
+    payload.setSvalue("updated");
+    return dao.update(payload).block();
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public long findAll() {
+    return dao.findAll().count().block();
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public long streamAll() {
+    return dao.streamAll(256).count().block();
+  }
+
+  // Row -> SomeEntity -> Jackson databind, as the object path encodes a listing
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public long streamAllDatabind() {
+    return dao.streamAll(256)
+        .map(entity -> {
+          try {
+            return MAPPER.writeValueAsBytes(entity).length;
+          } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+          }
+        })
+        .reduce(0L, Long::sum)
+        .block();
+  }
+
+  // Row -> DataBuffer directly
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public long streamAllJson() {
+    return dao.streamAllJson(256, DefaultDataBufferFactory.sharedInstance, 8192)
+        .map(buffer -> {
+          int bytes = buffer.readableByteCount();
+          DataBufferUtils.release(buffer);
+          return (long) bytes;
+        })
+        .reduce(0L, Long::sum)
+        .block();
+  }
+
+  static List<SomeEntity> entities(int count) {
+    return IntStream.range(0, count)
+        .mapToObj(i -> {
+          SomeEntity e = new SomeEntity();
+          e.setSvalue("bench-" + i);
+          return e;
+        })
+        .toList();
+  }
+}
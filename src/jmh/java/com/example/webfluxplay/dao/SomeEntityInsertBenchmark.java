@@ -0,0 +1,41 @@
+package com.example.webfluxplay.dao;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-row save versus one saveAll batch for the same number of rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SomeEntityInsertBenchmark {
+
+  @Param({"1", "10", "50", "200"})
+  public int batchSize;
+
+  private SomeEntityDao dao;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    dao = BenchmarkDaos.h2("bench_insert", false);
+  }
+
+  @Benchmark
+  public void saveOneByOne(Blackhole bh) {
+    Flux.fromIterable(SomeEntityDaoBenchmark.entities(batchSize))
+        .concatMap(dao::save)
+        .doOnNext(bh::consume)
+        .blockLast();
+  }
+
+  @Benchmark
+  public void saveAll(Blackhole bh) {
+    dao.saveAll(SomeEntityDaoBenchmark.entities(batchSize))
+        .doOnNext(bh::consume)
+        .blockLast();
+  }
+}
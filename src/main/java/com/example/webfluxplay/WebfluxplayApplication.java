@@ -1,21 +1,25 @@
 package com.example.webfluxplay;
 
-import com.example.webfluxplay.dao.SomeEntityDao;
+import com.example.webfluxplay.dao.SomeEntityRepository;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
 import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
-import org.springframework.boot.context.event.ApplicationReadyEvent;
-import org.springframework.context.event.EventListener;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
+import java.time.Duration;
+
+@ConfigurationPropertiesScan
 @SpringBootApplication(exclude = {DataSourceAutoConfiguration.class, R2dbcAutoConfiguration.class})
 @Slf4j
-public class WebfluxplayApplication {
+public class WebfluxplayApplication implements ApplicationRunner {
 
-  private final SomeEntityDao dao;
+  private final SomeEntityRepository dao;
 
-  public WebfluxplayApplication(SomeEntityDao dao) {
+  public WebfluxplayApplication(SomeEntityRepository dao) {
     this.dao = dao;
   }
 
@@ -23,14 +27,15 @@ public class WebfluxplayApplication {
     SpringApplication.run(WebfluxplayApplication.class, args);
   }
 
-  @EventListener(ApplicationReadyEvent.class)
-  public void doSomethingAfterStartup() {
-    log.info("App started. Initializing database..."); // 1. Verify the listener runs
-
-    dao.createTable()
-        .doOnNext(i -> log.info("Rows updated: " + i))
-        .doOnComplete(() -> log.info("Table creation completed successfully.")) // 2. Handle empty success
-        .doOnError(err -> log.error("Failed to create table", err))
-        .blockLast(); // 3. Block to keep the main thread alive for this task
+  // Runners finish before ApplicationReadyEvent, so the readiness probe stays REFUSING_TRAFFIC
+  // until the schema is in place and the pool and statements are warm. A failure aborts startup.
+  @Override
+  public void run(ApplicationArguments args) {
+    log.info("Initializing database...");
+    long start = System.nanoTime();
+    dao.initialize()
+        .doOnError(err -> log.error("Database initialization failed", err))
+        .block();
+    log.info("Database ready in {} ms", Duration.ofNanos(System.nanoTime() - start).toMillis());
   }
 }
\ No newline at end of file
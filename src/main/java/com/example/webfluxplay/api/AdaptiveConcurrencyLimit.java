@@ -0,0 +1,47 @@
+package com.example.webfluxplay.api;
+
+/**
+ * AIMD concurrency limit: every request that finishes overloaded (too slow, or with the connection
+ * pool queueing) shrinks the limit by 10%; while it is at least half used, each healthy finish grows
+ * it by 1/limit, about one slot per limit's worth of requests.
+ */
+final class AdaptiveConcurrencyLimit {
+
+  private static final double BACKOFF = 0.9;
+
+  private final int minLimit;
+  private final int maxLimit;
+  private double limit;
+  private int inFlight;
+
+  AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit) {
+    this.minLimit = Math.max(1, minLimit);
+    this.maxLimit = Math.max(this.minLimit, maxLimit);
+    this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+  }
+
+  synchronized boolean tryAcquire() {
+    if (inFlight >= (int) limit) {
+      return false;
+    }
+    inFlight++;
+    return true;
+  }
+
+  synchronized void release(boolean overloaded) {
+    if (overloaded) {
+      limit = Math.max(minLimit, limit * BACKOFF);
+    } else if (inFlight * 2 >= limit) {
+      limit = Math.min(maxLimit, limit + 1 / limit);
+    }
+    inFlight--;
+  }
+
+  synchronized int limit() {
+    return (int) limit;
+  }
+
+  synchronized int inFlight() {
+    return inFlight;
+  }
+}
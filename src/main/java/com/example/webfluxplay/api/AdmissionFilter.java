@@ -0,0 +1,177 @@
+package com.example.webfluxplay.api;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission control for /api, checked before anything is decoded or routed: a token bucket per
+ * client and per configured route (429), then an adaptive concurrency limit that also turns requests
+ * away while the connection pools have more than {@code max-pending-acquires} waiters (503). Both
+ * answers carry Retry-After. Actuator endpoints are never limited.
+ *
+ * <p>Clients are told apart by remote address, never by a header they choose themselves. Behind a
+ * proxy, enable {@code server.forward-headers-strategy} so the address is the forwarded one.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class AdmissionFilter implements WebFilter {
+
+  private static final PathPattern API = PathPatternParser.defaultInstance.parse("/api/**");
+  private static final int MAX_CLIENTS = 100_000;
+
+  private record Route(String name, HttpMethod method, PathPattern pattern, TokenBucket bucket) {}
+
+  private final AdmissionProperties properties;
+  private final MeterRegistry registry;
+  private final List<Route> routes;
+  private final List<PathPattern> unshed;
+  private final Cache<String, TokenBucket> clients;
+  private final AdaptiveConcurrencyLimit limit;
+  private final long targetLatencyNanos;
+  private volatile Collection<Gauge> poolPending;
+
+  public AdmissionFilter(AdmissionProperties properties, MeterRegistry registry) {
+    this.properties = properties;
+    this.registry = registry;
+    long now = System.nanoTime();
+    this.routes = properties.getRoutes().stream()
+        .filter(route -> route.getPermitsPerSecond() > 0)
+        .map(route -> new Route(
+            (route.getMethod() != null ? route.getMethod().toUpperCase() + " " : "") + route.getPattern(),
+            route.getMethod() != null ? HttpMethod.valueOf(route.getMethod().toUpperCase()) : null,
+            PathPatternParser.defaultInstance.parse(route.getPattern()),
+            new TokenBucket(route.getPermitsPerSecond(), route.getBurst(), now)))
+        .toList();
+    AdmissionProperties.Shedding shedding = properties.getShedding();
+    this.unshed = shedding.getExclude().stream().map(PathPatternParser.defaultInstance::parse).toList();
+    // An idle client's bucket would be full again by now, so forgetting it changes nothing
+    this.clients = Caffeine.newBuilder()
+        .maximumSize(MAX_CLIENTS)
+        .expireAfterAccess(Duration.ofMinutes(1))
+        .build();
+    this.limit = new AdaptiveConcurrencyLimit(shedding.getInitialLimit(), shedding.getMinLimit(), shedding.getMaxLimit());
+    this.targetLatencyNanos = shedding.getTargetLatency().toNanos();
+    Gauge.builder("someentity.admission.limit", limit, AdaptiveConcurrencyLimit::limit)
+        .description("Current adaptive concurrency limit for /api requests")
+        .register(registry);
+    Gauge.builder("someentity.admission.inflight", limit, AdaptiveConcurrencyLimit::inFlight)
+        .description("/api requests holding a concurrency slot")
+        .register(registry);
+  }
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+    ServerHttpRequest request = exchange.getRequest();
+    PathContainer path = request.getPath().pathWithinApplication();
+    if (!properties.isEnabled() || !API.matches(path)) {
+      return chain.filter(exchange);
+    }
+    long start = System.nanoTime();
+    Route route = route(request.getMethod(), path);
+    String routeName = route != null ? route.name() : "other";
+
+    // Client first, so a client over its own rate does not use up the route's shared tokens
+    AdmissionProperties.Rate clientRate = properties.getClient();
+    if (clientRate.getPermitsPerSecond() > 0) {
+      long wait = clients.get(remoteKey(request),
+          key -> new TokenBucket(clientRate.getPermitsPerSecond(), clientRate.getBurst(), start)).tryTake(start);
+      if (wait > 0) {
+        return reject(exchange, HttpStatus.TOO_MANY_REQUESTS, wait, "client", routeName);
+      }
+    }
+    if (route != null) {
+      long wait = route.bucket().tryTake(start);
+      if (wait > 0) {
+        return reject(exchange, HttpStatus.TOO_MANY_REQUESTS, wait, "route", routeName);
+      }
+    }
+
+    AdmissionProperties.Shedding shedding = properties.getShedding();
+    if (!shedding.isEnabled() || unshed.stream().anyMatch(pattern -> pattern.matches(path))) {
+      return chain.filter(exchange);
+    }
+    long retryAfter = shedding.getRetryAfter().toNanos();
+    if (poolPending() > shedding.getMaxPendingAcquires()) {
+      return reject(exchange, HttpStatus.SERVICE_UNAVAILABLE, retryAfter, "pool", routeName);
+    }
+    if (!limit.tryAcquire()) {
+      return reject(exchange, HttpStatus.SERVICE_UNAVAILABLE, retryAfter, "concurrency", routeName);
+    }
+    // Completes once the response body is written. A stream lasts as long as its data, so only
+    // bounded responses are measured against the target latency; pool queueing counts for all.
+    boolean bounded = !RoutingConfig.acceptsStream(request);
+    return chain.filter(exchange)
+        .doFinally(signal -> limit.release(bounded && System.nanoTime() - start > targetLatencyNanos
+            || poolPending() > shedding.getMaxPendingAcquires()));
+  }
+
+  static String remoteKey(ServerHttpRequest request) {
+    InetSocketAddress remote = request.getRemoteAddress();
+    // Host string: a forwarded address arrives unresolved, with no InetAddress behind it
+    return remote != null ? remote.getHostString() : "unknown";
+  }
+
+  private Route route(HttpMethod method, PathContainer path) {
+    for (Route route : routes) {
+      if ((route.method() == null || route.method().equals(method)) && route.pattern().matches(path)) {
+        return route;
+      }
+    }
+    return null;
+  }
+
+  // Requests waiting for a connection across every pool (primary, replicas, shards)
+  private double poolPending() {
+    Collection<Gauge> gauges = poolPending;
+    if (gauges == null) {
+      gauges = registry.find("r2dbc.pool.pending").gauges();
+      // Pools register their gauges when the DAO is built; keep looking until they have
+      if (!gauges.isEmpty()) {
+        poolPending = gauges;
+      }
+    }
+    double pending = 0;
+    for (Gauge gauge : gauges) {
+      pending += gauge.value();
+    }
+    return pending;
+  }
+
+  private Mono<Void> reject(ServerWebExchange exchange, HttpStatus status, long waitNanos, String reason, String route) {
+    Counter.builder("someentity.admission.rejected")
+        .description("Requests turned away by rate limits or load shedding")
+        .tag("reason", reason)
+        .tag("route", route)
+        .register(registry)
+        .increment();
+    ServerHttpResponse response = exchange.getResponse();
+    response.setStatusCode(status);
+    long seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+    response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(seconds));
+    return response.setComplete();
+  }
+}
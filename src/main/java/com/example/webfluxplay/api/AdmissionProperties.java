@@ -0,0 +1,84 @@
+package com.example.webfluxplay.api;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@ConfigurationProperties("someentity.admission")
+public class AdmissionProperties {
+  private boolean enabled = true;
+  private final List<Route> routes = new ArrayList<>();
+  private final Rate client = new Rate();
+  private final Shedding shedding = new Shedding();
+
+  public boolean isEnabled() { return enabled; }
+  public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+  public List<Route> getRoutes() { return routes; }
+  public Rate getClient() { return client; }
+  public Shedding getShedding() { return shedding; }
+
+  /** Token bucket: refills at {@code permitsPerSecond} up to {@code burst}; zero rate means unlimited. */
+  public static class Rate {
+    private double permitsPerSecond;
+    private int burst = 1;
+
+    public double getPermitsPerSecond() { return permitsPerSecond; }
+    public void setPermitsPerSecond(double permitsPerSecond) { this.permitsPerSecond = permitsPerSecond; }
+
+    public int getBurst() { return burst; }
+    public void setBurst(int burst) { this.burst = burst; }
+  }
+
+  /** A rate shared by every client calling one route; no method matches any method. */
+  public static class Route extends Rate {
+    private String method;
+    private String pattern;
+
+    public String getMethod() { return method; }
+    public void setMethod(String method) { this.method = method; }
+
+    public String getPattern() { return pattern; }
+    public void setPattern(String pattern) { this.pattern = pattern; }
+  }
+
+  /** Adaptive concurrency limit for /api requests, plus an early exit when the pool queue is deep. */
+  public static class Shedding {
+    private boolean enabled = true;
+    private int initialLimit = 20;
+    private int minLimit = 4;
+    private int maxLimit = 200;
+    private Duration targetLatency = Duration.ofMillis(250);
+    private int maxPendingAcquires = 20;
+    private Duration retryAfter = Duration.ofSeconds(1);
+    // Long-lived, streamed or separately limited routes would only distort the latency signal
+    private List<String> exclude = new ArrayList<>(List.of("/api/someentity/changes", "/api/someentity/all",
+        "/api/someentity/batch-update", "/api/someentity/batch-delete"));
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public int getInitialLimit() { return initialLimit; }
+    public void setInitialLimit(int initialLimit) { this.initialLimit = initialLimit; }
+
+    public int getMinLimit() { return minLimit; }
+    public void setMinLimit(int minLimit) { this.minLimit = minLimit; }
+
+    public int getMaxLimit() { return maxLimit; }
+    public void setMaxLimit(int maxLimit) { this.maxLimit = maxLimit; }
+
+    public Duration getTargetLatency() { return targetLatency; }
+    public void setTargetLatency(Duration targetLatency) { this.targetLatency = targetLatency; }
+
+    public int getMaxPendingAcquires() { return maxPendingAcquires; }
+    public void setMaxPendingAcquires(int maxPendingAcquires) { this.maxPendingAcquires = maxPendingAcquires; }
+
+    public Duration getRetryAfter() { return retryAfter; }
+    public void setRetryAfter(Duration retryAfter) { this.retryAfter = retryAfter; }
+
+    public List<String> getExclude() { return exclude; }
+    public void setExclude(List<String> exclude) { this.exclude = exclude; }
+  }
+}
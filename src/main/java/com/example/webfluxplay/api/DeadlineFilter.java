@@ -0,0 +1,114 @@
+package com.example.webfluxplay.api;
+
+import com.example.webfluxplay.dao.Deadline;
+import com.example.webfluxplay.dao.DeadlineExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebInputException;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Gives every /api request a deadline, the route's budget or a shorter one asked for in the
+ * {@code X-Request-Timeout} header, and puts it in the Reactor Context where the DAO picks it up.
+ * Database work still running at the deadline is cancelled and answered with 504 if nothing has
+ * been written yet.
+ * Streamed responses (NDJSON, Smile streams, server-sent events) run as long as their data does, so
+ * they only get a deadline when the client asks for one.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class DeadlineFilter implements WebFilter {
+
+  private static final PathPattern API = PathPatternParser.defaultInstance.parse("/api/**");
+
+  private record Route(String name, HttpMethod method, PathPattern pattern, Duration budget) {}
+
+  private final DeadlineProperties properties;
+  private final MeterRegistry registry;
+  private final List<Route> routes;
+
+  public DeadlineFilter(DeadlineProperties properties, MeterRegistry registry) {
+    this.properties = properties;
+    this.registry = registry;
+    this.routes = properties.getRoutes().stream()
+        .map(route -> new Route(
+            (route.getMethod() != null ? route.getMethod().toUpperCase() + " " : "") + route.getPattern(),
+            route.getMethod() != null ? HttpMethod.valueOf(route.getMethod().toUpperCase()) : null,
+            PathPatternParser.defaultInstance.parse(route.getPattern()),
+            route.getBudget()))
+        .toList();
+  }
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+    ServerHttpRequest request = exchange.getRequest();
+    PathContainer path = request.getPath().pathWithinApplication();
+    if (!properties.isEnabled() || !API.matches(path)) {
+      return chain.filter(exchange);
+    }
+    Route route = route(request.getMethod(), path);
+    Duration budget = RoutingConfig.acceptsStream(request) ? Duration.ZERO
+        : route != null ? route.budget() : properties.getDefaultBudget();
+    String requested = request.getHeaders().getFirst(properties.getHeader());
+    if (requested != null) {
+      long millis;
+      try {
+        millis = Long.parseLong(requested.trim());
+      } catch (NumberFormatException e) {
+        millis = -1;
+      }
+      if (millis < 0) {
+        return Mono.error(new ServerWebInputException(properties.getHeader() + " must be a non-negative number of milliseconds"));
+      }
+      Duration asked = Duration.ofMillis(millis);
+      budget = budget.isZero() || asked.compareTo(budget) < 0 ? asked : budget;
+    } else if (budget.isZero()) {
+      return chain.filter(exchange);
+    }
+    Duration deadline = budget;
+    String routeName = route != null ? route.name() : "other";
+    return chain.filter(exchange)
+        .onErrorResume(DeadlineExceededException.class, e -> timedOut(exchange, e, routeName))
+        .contextWrite(context -> Deadline.after(context, deadline));
+  }
+
+  private Route route(HttpMethod method, PathContainer path) {
+    for (Route route : routes) {
+      if ((route.method() == null || route.method().equals(method)) && route.pattern().matches(path)) {
+        return route;
+      }
+    }
+    return null;
+  }
+
+  private Mono<Void> timedOut(ServerWebExchange exchange, DeadlineExceededException e, String route) {
+    Counter.builder("someentity.deadline.exceeded")
+        .description("/api requests whose deadline passed before the database work finished")
+        .tag("route", route)
+        .register(registry)
+        .increment();
+    ServerHttpResponse response = exchange.getResponse();
+    // A streamed response that has already started can only be cut short
+    if (response.isCommitted()) {
+      return Mono.error(e);
+    }
+    response.setStatusCode(HttpStatus.GATEWAY_TIMEOUT);
+    return response.setComplete();
+  }
+}
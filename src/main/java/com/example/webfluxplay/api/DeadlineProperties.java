@@ -0,0 +1,43 @@
+package com.example.webfluxplay.api;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@ConfigurationProperties("someentity.deadline")
+public class DeadlineProperties {
+  private boolean enabled = true;
+  private Duration defaultBudget = Duration.ofSeconds(10);
+  // Clients may ask for a shorter budget, in milliseconds, but never a longer one
+  private String header = "X-Request-Timeout";
+  private final List<Route> routes = new ArrayList<>();
+
+  public boolean isEnabled() { return enabled; }
+  public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+  public Duration getDefaultBudget() { return defaultBudget; }
+  public void setDefaultBudget(Duration defaultBudget) { this.defaultBudget = defaultBudget; }
+
+  public String getHeader() { return header; }
+  public void setHeader(String header) { this.header = header; }
+
+  public List<Route> getRoutes() { return routes; }
+
+  /** Budget for one route instead of the default; zero means no deadline. No method matches any method. */
+  public static class Route {
+    private String method;
+    private String pattern;
+    private Duration budget = Duration.ZERO;
+
+    public String getMethod() { return method; }
+    public void setMethod(String method) { this.method = method; }
+
+    public String getPattern() { return pattern; }
+    public void setPattern(String pattern) { this.pattern = pattern; }
+
+    public Duration getBudget() { return budget; }
+    public void setBudget(Duration budget) { this.budget = budget; }
+  }
+}
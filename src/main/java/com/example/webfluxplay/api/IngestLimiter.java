@@ -0,0 +1,62 @@
+package com.example.webfluxplay.api;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Admission control for bulk loads. A load holds a slot until its response body terminates; when
+ * every slot is taken the request is turned away instead of queueing behind the others.
+ */
+@Component
+public class IngestLimiter {
+
+  private final IngestProperties properties;
+  private final AtomicInteger active;
+  private final Counter rejected;
+
+  public IngestLimiter(IngestProperties properties, MeterRegistry registry) {
+    this.properties = properties;
+    this.active = registry.gauge("someentity.ingest.active", new AtomicInteger());
+    this.rejected = Counter.builder("someentity.ingest.rejected")
+        .description("Bulk loads rejected because every ingest slot was taken")
+        .register(registry);
+  }
+
+  /**
+   * Takes a slot if one is free. The returned release action is idempotent, so it can be hooked to
+   * every way the load may end.
+   */
+  public Optional<Runnable> tryAcquire() {
+    int current;
+    do {
+      current = active.get();
+      if (current >= properties.getMaxConcurrentRequests()) {
+        rejected.increment();
+        return Optional.empty();
+      }
+    } while (!active.compareAndSet(current, current + 1));
+    AtomicBoolean released = new AtomicBoolean();
+    return Optional.of(() -> {
+      if (released.compareAndSet(false, true)) {
+        active.decrementAndGet();
+      }
+    });
+  }
+
+  public int active() {
+    return active.get();
+  }
+
+  public long retryAfterSeconds() {
+    return Math.max(1, properties.getRetryAfter().toSeconds());
+  }
+
+  public int prefetch() {
+    return properties.getPrefetch();
+  }
+}
@@ -0,0 +1,21 @@
+package com.example.webfluxplay.api;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties("someentity.ingest")
+public class IngestProperties {
+  private int maxConcurrentRequests = 4;
+  private Duration retryAfter = Duration.ofSeconds(1);
+  private int prefetch = 256;
+
+  public int getMaxConcurrentRequests() { return maxConcurrentRequests; }
+  public void setMaxConcurrentRequests(int maxConcurrentRequests) { this.maxConcurrentRequests = maxConcurrentRequests; }
+
+  public Duration getRetryAfter() { return retryAfter; }
+  public void setRetryAfter(Duration retryAfter) { this.retryAfter = retryAfter; }
+
+  public int getPrefetch() { return prefetch; }
+  public void setPrefetch(int prefetch) { this.prefetch = prefetch; }
+}
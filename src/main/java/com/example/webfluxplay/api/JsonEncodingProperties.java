@@ -0,0 +1,19 @@
+package com.example.webfluxplay.api;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties("someentity.json")
+public class JsonEncodingProperties {
+  private boolean directStream = true;
+  private boolean directList = false;
+  private int chunkSize = 8192;
+
+  public boolean isDirectStream() { return directStream; }
+  public void setDirectStream(boolean directStream) { this.directStream = directStream; }
+
+  public boolean isDirectList() { return directList; }
+  public void setDirectList(boolean directList) { this.directList = directList; }
+
+  public int getChunkSize() { return chunkSize; }
+  public void setChunkSize(int chunkSize) { this.chunkSize = chunkSize; }
+}
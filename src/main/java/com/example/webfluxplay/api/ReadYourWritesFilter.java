@@ -0,0 +1,65 @@
+package com.example.webfluxplay.api;
+
+import com.example.webfluxplay.dao.ReadConsistency;
+import com.example.webfluxplay.dao.ReplicaProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.Set;
+
+/**
+ * Read-your-writes on top of lagging replicas: a client that sent a write within the window has
+ * its reads served by the primary. Clients are told apart by {@code X-Client-Id}, falling back to
+ * the remote address. Does nothing when no replicas are configured.
+ */
+@Component
+public class ReadYourWritesFilter implements WebFilter {
+
+  static final String CLIENT_ID_HEADER = "X-Client-Id";
+
+  private static final Set<HttpMethod> WRITES = Set.of(HttpMethod.POST, HttpMethod.PUT, HttpMethod.PATCH, HttpMethod.DELETE);
+  private static final int MAX_CLIENTS = 100_000;
+
+  private final boolean enabled;
+  private final Cache<String, Boolean> recentWriters;
+
+  public ReadYourWritesFilter(ReplicaProperties properties) {
+    this.enabled = !properties.getPools().isEmpty();
+    this.recentWriters = Caffeine.newBuilder()
+        .maximumSize(MAX_CLIENTS)
+        .expireAfterWrite(properties.getReadYourWritesWindow())
+        .build();
+  }
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+    if (!enabled) {
+      return chain.filter(exchange);
+    }
+    ServerHttpRequest request = exchange.getRequest();
+    String client = clientKey(request);
+    Mono<Void> result = chain.filter(exchange);
+    // Failed or partial writes count too: a bulk load may have committed rows before it stopped
+    if (WRITES.contains(request.getMethod())) {
+      result = result.doFinally(signal -> recentWriters.put(client, Boolean.TRUE));
+    }
+    return recentWriters.getIfPresent(client) != null
+        ? result.contextWrite(ReadConsistency::primary)
+        : result;
+  }
+
+  private static String clientKey(ServerHttpRequest request) {
+    String clientId = request.getHeaders().getFirst(CLIENT_ID_HEADER);
+    if (clientId != null) {
+      return "id:" + clientId;
+    }
+    return "addr:" + AdmissionFilter.remoteKey(request);
+  }
+}
@@ -0,0 +1,177 @@
+package com.example.webfluxplay.api;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.compression.DecompressionException;
+import io.netty.handler.codec.compression.JdkZlibDecoder;
+import io.netty.handler.codec.compression.ZlibWrapper;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebInputException;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Inflates gzip and deflate request bodies (Content-Encoding) as they stream in, so bulk loads
+ * can be uploaded compressed without the whole body being buffered. Other codings get 415.
+ * Streamed routes may inflate to {@code max-inflated-stream-size}, every other body to
+ * {@code max-inflated-size}; past that the request gets 413.
+ */
+@Component
+public class RequestDecompressionFilter implements WebFilter {
+
+  // Only these carry a body worth inflating
+  private static final Set<HttpMethod> WITH_BODY = Set.of(HttpMethod.POST, HttpMethod.PUT, HttpMethod.PATCH);
+
+  private final RequestDecompressionProperties properties;
+  private final List<PathPattern> streamed;
+
+  public RequestDecompressionFilter(RequestDecompressionProperties properties) {
+    this.properties = properties;
+    this.streamed = properties.getStreamed().stream().map(PathPatternParser.defaultInstance::parse).toList();
+  }
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+    ServerHttpRequest request = exchange.getRequest();
+    String encoding = request.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING);
+    String coding = encoding != null ? encoding.trim().toLowerCase(Locale.ROOT) : null;
+    if (!properties.isEnabled() || coding == null || coding.equals("identity")
+        || !WITH_BODY.contains(request.getMethod())) {
+      return chain.filter(exchange);
+    }
+    ZlibWrapper wrapper = switch (coding) {
+      case "gzip", "x-gzip" -> ZlibWrapper.GZIP;
+      // RFC 9110 deflate is zlib-wrapped, but some clients send raw deflate
+      case "deflate" -> ZlibWrapper.ZLIB_OR_NONE;
+      default -> null;
+    };
+    if (wrapper == null) {
+      exchange.getResponse().setStatusCode(HttpStatus.UNSUPPORTED_MEDIA_TYPE);
+      exchange.getResponse().getHeaders().set("Accept-Encoding", "gzip, deflate");
+      return exchange.getResponse().setComplete();
+    }
+
+    ServerHttpRequest plain = request.mutate()
+        .headers(headers -> {
+          headers.remove(HttpHeaders.CONTENT_ENCODING);
+          headers.remove(HttpHeaders.CONTENT_LENGTH);
+        })
+        .build();
+    DataBufferFactory bufferFactory = exchange.getResponse().bufferFactory();
+    PathContainer path = request.getPath().pathWithinApplication();
+    long maxBytes = (streamed.stream().anyMatch(pattern -> pattern.matches(path))
+        ? properties.getMaxInflatedStreamSize()
+        : properties.getMaxInflatedSize()).toBytes();
+    return chain.filter(exchange.mutate()
+        .request(new ServerHttpRequestDecorator(plain) {
+          @Override
+          public Flux<DataBuffer> getBody() {
+            return inflate(request.getBody(), wrapper, bufferFactory, maxBytes);
+          }
+        })
+        .build());
+  }
+
+  // -----------------------------------------------------------------------
+  // INFLATION
+  // -----------------------------------------------------------------------
+
+  // Netty's zlib decoder run on an embedded channel: each compressed chunk in, whatever it inflates to out.
+  // Chunks are handed over as the ByteBufs they arrived in and come back out the same way, uncopied.
+  private static Flux<DataBuffer> inflate(Flux<DataBuffer> body, ZlibWrapper wrapper, DataBufferFactory bufferFactory,
+                                         long maxBytes) {
+    return Flux.defer(() -> {
+      // Also caps what a single chunk may inflate to, so a bomb fails before it is held in memory
+      EmbeddedChannel inflater = new EmbeddedChannel(new CappedZlibDecoder(wrapper, (int) Math.min(maxBytes, Integer.MAX_VALUE)));
+      long[] inflated = {0};
+      return body
+          .concatMapIterable(compressed -> {
+            inflater.writeInbound(toByteBuf(compressed));
+            return drain(inflater, bufferFactory, inflated, maxBytes);
+          })
+          .concatWith(Flux.defer(() -> {
+            inflater.finish();
+            return Flux.fromIterable(drain(inflater, bufferFactory, inflated, maxBytes));
+          }))
+          .onErrorMap(InflatedTooLargeException.class,
+              e -> new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "Inflated request body too large"))
+          .onErrorMap(DecompressionException.class, e -> new ServerWebInputException("Malformed compressed request body"))
+          .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+          .doFinally(signal -> inflater.finishAndReleaseAll());
+    });
+  }
+
+  // Netty signals a full decompression buffer with a plain DecompressionException; its hook lets the
+  // cap be told apart from a corrupt body by type
+  private static final class CappedZlibDecoder extends JdkZlibDecoder {
+    CappedZlibDecoder(ZlibWrapper wrapper, int maxAllocation) {
+      super(wrapper, maxAllocation);
+    }
+
+    @Override
+    protected void decompressionBufferExhausted(ByteBuf buffer) {
+      super.decompressionBufferExhausted(buffer);
+      throw new InflatedTooLargeException();
+    }
+  }
+
+  private static final class InflatedTooLargeException extends DecompressionException {
+    private static final long serialVersionUID = 1L;
+  }
+
+  // The decoder takes ownership and releases it once read
+  private static ByteBuf toByteBuf(DataBuffer buffer) {
+    if (buffer instanceof NettyDataBuffer netty) {
+      return netty.getNativeBuffer();
+    }
+    byte[] bytes = new byte[buffer.readableByteCount()];
+    buffer.read(bytes);
+    DataBufferUtils.release(buffer);
+    return Unpooled.wrappedBuffer(bytes);
+  }
+
+  private static List<DataBuffer> drain(EmbeddedChannel inflater, DataBufferFactory bufferFactory,
+                                        long[] inflated, long maxBytes) {
+    List<DataBuffer> out = new ArrayList<>();
+    ByteBuf chunk;
+    while ((chunk = inflater.readInbound()) != null) {
+      inflated[0] += chunk.readableBytes();
+      if (inflated[0] > maxBytes) {
+        chunk.release();
+        out.forEach(DataBufferUtils::release);
+        throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "Inflated request body too large");
+      }
+      if (bufferFactory instanceof NettyDataBufferFactory netty) {
+        out.add(netty.wrap(chunk));
+      } else {
+        out.add(bufferFactory.wrap(ByteBufUtil.getBytes(chunk)));
+        chunk.release();
+      }
+    }
+    return out;
+  }
+}
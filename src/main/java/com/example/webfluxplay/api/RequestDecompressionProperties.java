@@ -0,0 +1,30 @@
+package com.example.webfluxplay.api;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@ConfigurationProperties("someentity.request-decompression")
+public class RequestDecompressionProperties {
+  private boolean enabled = true;
+  // A single document; well above what the JSON codec accepts in memory anyway
+  private DataSize maxInflatedSize = DataSize.ofMegabytes(1);
+  private DataSize maxInflatedStreamSize = DataSize.ofMegabytes(256);
+  // Routes that stream their body element by element rather than decoding one document
+  private List<String> streamed = new ArrayList<>(List.of("/api/someentity/all",
+      "/api/someentity/batch-update", "/api/someentity/batch-delete"));
+
+  public boolean isEnabled() { return enabled; }
+  public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+  public DataSize getMaxInflatedSize() { return maxInflatedSize; }
+  public void setMaxInflatedSize(DataSize maxInflatedSize) { this.maxInflatedSize = maxInflatedSize; }
+
+  public DataSize getMaxInflatedStreamSize() { return maxInflatedStreamSize; }
+  public void setMaxInflatedStreamSize(DataSize maxInflatedStreamSize) { this.maxInflatedStreamSize = maxInflatedStreamSize; }
+
+  public List<String> getStreamed() { return streamed; }
+  public void setStreamed(List<String> streamed) { this.streamed = streamed; }
+}
@@ -0,0 +1,77 @@
+package com.example.webfluxplay.api;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.ErrorResponse;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-route latency (including response serialization), error counts and in-flight requests for
+ * the functional routes. Requests that do not match a route are not recorded.
+ */
+@Component
+public class RouteMetricsFilter implements WebFilter {
+
+  private final MeterRegistry registry;
+  private final AtomicInteger inFlight;
+
+  public RouteMetricsFilter(MeterRegistry registry) {
+    this.registry = registry;
+    this.inFlight = registry.gauge("someentity.http.inflight", new AtomicInteger());
+  }
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+    return Mono.defer(() -> {
+      Timer.Sample sample = Timer.start(registry);
+      inFlight.incrementAndGet();
+      return chain.filter(exchange)
+          .doOnError(err -> record(exchange, sample, err))
+          .doOnSuccess(v -> record(exchange, sample, null))
+          .doOnCancel(() -> record(exchange, sample, null));
+    });
+  }
+
+  private void record(ServerWebExchange exchange, Timer.Sample sample, Throwable error) {
+    inFlight.decrementAndGet();
+    PathPattern pattern = exchange.getAttribute(RouterFunctions.MATCHING_PATTERN_ATTRIBUTE);
+    if (pattern == null) {
+      return;
+    }
+    String route = pattern.getPatternString();
+    String method = exchange.getRequest().getMethod().name();
+    // Exceptions are turned into responses after the filter chain, so derive their status here
+    HttpStatusCode status = error instanceof ErrorResponse response ? response.getStatusCode()
+        : error != null ? HttpStatus.INTERNAL_SERVER_ERROR
+        : exchange.getResponse().getStatusCode() != null ? exchange.getResponse().getStatusCode()
+        : HttpStatus.OK;
+
+    sample.stop(Timer.builder("someentity.http.requests")
+        .description("Route latency including response serialization")
+        .tag("method", method)
+        .tag("route", route)
+        .tag("status", String.valueOf(status.value()))
+        .publishPercentileHistogram()
+        .register(registry));
+
+    if (status.is5xxServerError()) {
+      Counter.builder("someentity.http.errors")
+          .tag("method", method)
+          .tag("route", route)
+          .tag("exception", error != null ? error.getClass().getSimpleName() : "none")
+          .register(registry)
+          .increment();
+    }
+  }
+}
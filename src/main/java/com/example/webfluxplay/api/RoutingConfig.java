@@ -4,6 +4,8 @@ import org.springframework.boot.web.error.ErrorAttributeOptions;
 import org.springframework.boot.web.reactive.error.DefaultErrorAttributes;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.reactive.config.EnableWebFlux;
 import org.springframework.web.reactive.config.WebFluxConfigurer;
 import org.springframework.web.reactive.function.server.RouterFunction;
@@ -11,6 +13,7 @@ import org.springframework.web.reactive.function.server.RouterFunctions;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
 
+import java.util.List;
 import java.util.Map;
 
 import static org.springframework.http.MediaType.APPLICATION_JSON;
@@ -19,23 +22,50 @@ import static org.springframework.web.reactive.function.server.RequestPredicates
 @Configuration
 @EnableWebFlux
 public class RoutingConfig implements WebFluxConfigurer {
+
+  /**
+   * Jackson's binary JSON; smaller and cheaper to parse than text, same data model.
+   * The default codecs pick up Smile as soon as jackson-dataformat-smile is on the classpath.
+   */
+  public static final MediaType APPLICATION_SMILE = MediaType.valueOf("application/x-jackson-smile");
+
+  /** Smile documents back to back, the binary counterpart of NDJSON. */
+  public static final MediaType APPLICATION_STREAM_SMILE = MediaType.valueOf("application/stream+x-jackson-smile");
+
+  // Responses that stay open for as long as there is data: full-table exports and change events
+  private static final List<MediaType> STREAMING = List.of(
+      MediaType.APPLICATION_NDJSON, APPLICATION_STREAM_SMILE, MediaType.TEXT_EVENT_STREAM);
+
+  /** Whether the request asks for a streamed, unbounded response rather than one sized document. */
+  static boolean acceptsStream(ServerHttpRequest request) {
+    return request.getHeaders().getAccept().stream()
+        .anyMatch(accepted -> STREAMING.stream().anyMatch(accepted::equalsTypeAndSubtype));
+  }
+
   @Bean
   public RouterFunction<ServerResponse> routerFunctions(SomeEntityHandler handler) {
     return RouterFunctions.nest(path("/api/someentity"),
         RouterFunctions.route()
-            // 1. GET requests
+            // 1. GET requests; /changes must precede /{id}
+            .GET("/changes", handler::streamChanges)
             .GET("/{id}", handler::getSomeEntity)
             // FIX: Use method reference to pass ServerRequest automatically
             .GET("", handler::listSomeEntities)
 
             // 2. DELETE
             .DELETE("/{id}", handler::deleteSomeEntity)
+            .DELETE("", handler::deleteSomeEntitiesById)
 
             // 3. WRITE operations
-            .nest(accept(APPLICATION_JSON).and(contentType(APPLICATION_JSON)), builder -> builder
+            .nest(accept(APPLICATION_JSON, APPLICATION_SMILE, APPLICATION_STREAM_SMILE)
+                .and(contentType(APPLICATION_JSON, APPLICATION_SMILE, APPLICATION_STREAM_SMILE)), builder -> builder
                 .POST("", handler::createSomeEntity)
                 .POST("/all", handler::createSomeEntities)
                 .PATCH("", handler::updateSomeEntity)
+                // 4. Set-based batch operations, streamed back one result per element
+                .POST("/batch-update", handler::updateSomeEntities)
+                .PATCH("/batch-update", handler::updateSomeEntities)
+                .POST("/batch-delete", handler::deleteSomeEntities)
             )
             .build()
     );
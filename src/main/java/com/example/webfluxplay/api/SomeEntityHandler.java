@@ -1,28 +1,59 @@
 package com.example.webfluxplay.api;
 
-import com.example.webfluxplay.dao.SomeEntityDao;
+import com.example.webfluxplay.dao.ChangeStreamProperties;
+import com.example.webfluxplay.dao.SomeEntityRepository;
+import com.example.webfluxplay.dao.VersionConflictException;
+import com.example.webfluxplay.model.ChangeEvent;
+import com.example.webfluxplay.model.ItemResult;
 import com.example.webfluxplay.model.SomeEntity;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.ETag;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Component;
 import org.springframework.validation.BeanPropertyBindingResult;
 import org.springframework.validation.Errors;
 import org.springframework.validation.Validator;
+import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
 import org.springframework.web.server.ServerWebInputException;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 @Component
 public class SomeEntityHandler {
 
+  static final int DEFAULT_PAGE_SIZE = 100;
+  static final int MAX_PAGE_SIZE = 1000;
+  static final int STREAM_FETCH_SIZE = 256;
+  // Stands in for an If-Match tag that cannot name any version, so the update is refused
+  private static final long UNMATCHABLE_VERSION = -1L;
+
   private final Validator validator;
-  private final SomeEntityDao dao;
+  private final SomeEntityRepository dao;
+  private final IngestLimiter ingestLimiter;
+  private final ChangeStreamProperties changeStreamProperties;
+  private final JsonEncodingProperties json;
 
-  public SomeEntityHandler(Validator validator, SomeEntityDao dao) {
+  public SomeEntityHandler(Validator validator, SomeEntityRepository dao, IngestLimiter ingestLimiter,
+                           ChangeStreamProperties changeStreamProperties, JsonEncodingProperties json) {
     this.validator = validator;
     this.dao = dao;
+    this.ingestLimiter = ingestLimiter;
+    this.changeStreamProperties = changeStreamProperties;
+    this.json = json;
   }
 
   // -----------------------------------------------------------------------
@@ -30,21 +61,122 @@ public class SomeEntityHandler {
   // -----------------------------------------------------------------------
 
   public Mono<ServerResponse> listSomeEntities(ServerRequest request) {
-    return ServerResponse.ok()
-        .contentType(MediaType.APPLICATION_JSON)
-        .body(dao.findAll(), SomeEntity.class);
+    DataBufferFactory bufferFactory = request.exchange().getResponse().bufferFactory();
+    Optional<String> svalue = request.queryParam("svalue");
+    Optional<String> prefix = request.queryParam("prefix");
+    boolean filtered = svalue.isPresent() || prefix.isPresent();
+    if (!filtered && wantsSmileStream(request)) {
+      return ServerResponse.ok()
+          .contentType(RoutingConfig.APPLICATION_STREAM_SMILE)
+          .body(dao.streamAll(STREAM_FETCH_SIZE).limitRate(STREAM_FETCH_SIZE), SomeEntity.class);
+    }
+    if (!filtered && wantsStream(request)) {
+      // NDJSON: one element per line, demand flows back to the R2DBC cursor
+      ServerResponse.BodyBuilder builder = ServerResponse.ok().contentType(MediaType.APPLICATION_NDJSON);
+      return json.isDirectStream()
+          ? builder.body(BodyInserters.fromDataBuffers(
+              dao.streamAllJson(STREAM_FETCH_SIZE, bufferFactory, json.getChunkSize())))
+          : builder.body(dao.streamAll(STREAM_FETCH_SIZE).limitRate(STREAM_FETCH_SIZE), SomeEntity.class);
+    }
+
+    long after = longParam(request, "after", 0L);
+    int limit = (int) Math.min(longParam(request, "limit", DEFAULT_PAGE_SIZE), MAX_PAGE_SIZE);
+    if (limit < 1) {
+      throw new ServerWebInputException("limit must be positive");
+    }
+
+    // Filtered searches are always paged: an exact svalue in id order like the plain list, a prefix in
+    // (svalue, id) order with afterSvalue as the second half of its cursor
+    if (filtered) {
+      if (svalue.isPresent() && prefix.isPresent()) {
+        throw new ServerWebInputException("Use either 'svalue' or 'prefix', not both");
+      }
+      if (prefix.filter(String::isEmpty).isPresent()) {
+        throw new ServerWebInputException("prefix must not be empty");
+      }
+      return svalue.isPresent()
+          ? page(request, limit, dao.findBySvalue(svalue.get(), after, limit), false)
+          : page(request, limit, dao.findBySvaluePrefix(prefix.get(),
+              request.queryParam("afterSvalue").orElse(null), after, limit), true);
+    }
+
+    // Direct encoding only produces JSON
+    if (json.isDirectList() && responseType(request).equals(MediaType.APPLICATION_JSON)) {
+      return dao.findPageJson(after, limit, bufferFactory, json.getChunkSize())
+          .flatMap(page -> pageResponse(request, limit, page.rows(), page.lastId(), null)
+              .body(BodyInserters.fromDataBuffers(Flux.fromIterable(page.chunks()))));
+    }
+    return page(request, limit, dao.findPage(after, limit), false);
+  }
+
+  private Mono<ServerResponse> page(ServerRequest request, int limit, Flux<SomeEntity> rows, boolean svalueCursor) {
+    return rows.collectList()
+        .flatMap(page -> {
+          SomeEntity last = page.isEmpty() ? null : page.get(page.size() - 1);
+          return pageResponse(request, limit, page.size(), last != null ? last.getId() : null,
+                  svalueCursor && last != null ? last.getSvalue() : null)
+              .bodyValue(page);
+        });
+  }
+
+  private ServerResponse.BodyBuilder pageResponse(ServerRequest request, int limit, long rows, Long lastId,
+                                                  String lastSvalue) {
+    ServerResponse.BodyBuilder builder = ServerResponse.ok().contentType(responseType(request));
+    if (rows == limit) {
+      // A full page means there may be more; hand out the keyset cursor. The request's own
+      // parameters are already encoded, so only the new values are encoded here.
+      UriComponentsBuilder next = UriComponentsBuilder.fromUri(request.uri())
+          .replaceQueryParam("after", lastId)
+          .replaceQueryParam("limit", limit);
+      if (lastSvalue != null) {
+        // Form encoding, as query parameters are form-decoded when read back
+        next.replaceQueryParam("afterSvalue", URLEncoder.encode(lastSvalue, StandardCharsets.UTF_8));
+      }
+      builder.header(HttpHeaders.LINK, "<" + next.build(true).toUriString() + ">; rel=\"next\"");
+    }
+    return builder;
   }
 
   public Mono<ServerResponse> getSomeEntity(ServerRequest request) {
     Long id = Long.valueOf(request.pathVariable("id"));
 
     return dao.findById(id)
-        .flatMap(entity -> ServerResponse.ok()
-            .contentType(MediaType.APPLICATION_JSON)
-            .bodyValue(entity))
+        .flatMap(entity -> {
+          String etag = etag(entity);
+          // Pollers holding the current version get a bodiless 304
+          return request.checkNotModified(etag)
+              .switchIfEmpty(Mono.defer(() -> ServerResponse.ok()
+                  .eTag(etag)
+                  .contentType(responseType(request))
+                  .bodyValue(entity)));
+        })
         .switchIfEmpty(ServerResponse.notFound().build());
   }
 
+  // -----------------------------------------------------------------------
+  // CHANGE STREAM
+  // -----------------------------------------------------------------------
+
+  public Mono<ServerResponse> streamChanges(ServerRequest request) {
+    long after = resumeFrom(request);
+    Flux<ServerSentEvent<ChangeEvent>> events = dao.changes(after)
+        .map(event -> ServerSentEvent.builder(event)
+            .id(String.valueOf(event.getSequence()))
+            .event(event.getType().name().toLowerCase())
+            .build())
+        // A subscriber cut off for falling behind reconnects with Last-Event-ID and resumes from there
+        .onErrorResume(Exceptions::isOverflow, e -> Flux.empty());
+    // Comment-only heartbeats keep idle connections open through proxies and surface dead clients;
+    // they stop when the event stream ends so the response can complete
+    Flux<ServerSentEvent<ChangeEvent>> withHeartbeats = events.publish(shared -> Flux.merge(shared,
+        Flux.interval(changeStreamProperties.getHeartbeat())
+            .map(tick -> ServerSentEvent.<ChangeEvent>builder().comment("heartbeat").build())
+            .takeUntilOther(shared.ignoreElements())));
+    return ServerResponse.ok()
+        .contentType(MediaType.TEXT_EVENT_STREAM)
+        .body(BodyInserters.fromServerSentEvents(withHeartbeats));
+  }
+
   // -----------------------------------------------------------------------
   // WRITE
   // -----------------------------------------------------------------------
@@ -55,30 +187,58 @@ public class SomeEntityHandler {
         .flatMap(dao::save)
         .flatMap(saved -> ServerResponse.created(request.uriBuilder()
                 .path("/{id}").build(saved.getId())) // Record accessor .id()
-            .contentType(MediaType.APPLICATION_JSON)
+            .eTag(etag(saved))
+            .contentType(responseType(request))
             .bodyValue(saved));
   }
 
   public Mono<ServerResponse> createSomeEntities(ServerRequest request) {
+    // The body is decoded element by element and inserted in adaptively sized multi-row batches
+    return admitted(request, dao.bulkInsert(body(request, SomeEntity.class)
+        .doOnNext(this::validate)), SomeEntity.class);
+  }
+
+  public Mono<ServerResponse> updateSomeEntities(ServerRequest request) {
+    return admitted(request, dao.updateAll(body(request, SomeEntity.class)
+        .doOnNext(this::validate)
+        .doOnNext(this::requireId)), ItemResult.class);
+  }
+
+  public Mono<ServerResponse> deleteSomeEntities(ServerRequest request) {
+    return admitted(request, dao.deleteAllById(body(request, Long.class)), ItemResult.class);
+  }
+
+  // DELETE /api/someentity?id=1&id=2 for short lists; long ones go in a batch-delete body
+  public Mono<ServerResponse> deleteSomeEntitiesById(ServerRequest request) {
+    List<String> values = request.queryParams().getOrDefault("id", List.of());
+    if (values.isEmpty() || values.size() > MAX_PAGE_SIZE) {
+      throw new ServerWebInputException("Between 1 and " + MAX_PAGE_SIZE + " 'id' parameters required");
+    }
+    List<Long> ids;
+    try {
+      ids = values.stream().map(Long::valueOf).toList();
+    } catch (NumberFormatException e) {
+      throw new ServerWebInputException("Invalid value for 'id'");
+    }
     return ServerResponse.ok()
-        .contentType(MediaType.APPLICATION_JSON)
-        .body(request.bodyToFlux(SomeEntity.class)
-            .buffer(50) // Process in batches of 50
-            .flatMap(batch -> {
-              validateAll(batch);
-              return dao.saveAll(batch);
-            }), SomeEntity.class);
+        .contentType(streamType(request))
+        .body(dao.deleteAllById(Flux.fromIterable(ids)), ItemResult.class);
   }
 
   public Mono<ServerResponse> updateSomeEntity(ServerRequest request) {
+    Set<Long> expectedVersions = ifMatchVersions(request);
     return request.bodyToMono(SomeEntity.class)
         .doOnNext(this::validate)
+        // If-Match wins over a version in the body; with neither the update is unconditional
+        .flatMap(payload -> expectedVersions == null ? Mono.just(payload) : expecting(payload, expectedVersions))
         // Delegate to the atomic DAO method
         .flatMap(dao::update)
         .flatMap(saved -> ServerResponse.ok()
-            .contentType(MediaType.APPLICATION_JSON)
+            .eTag(etag(saved))
+            .contentType(responseType(request))
             .bodyValue(saved))
-        .onErrorResume(IllegalArgumentException.class, e -> ServerResponse.notFound().build());
+        .onErrorResume(IllegalArgumentException.class, e -> ServerResponse.notFound().build())
+        .onErrorResume(VersionConflictException.class, e -> ServerResponse.status(HttpStatus.PRECONDITION_FAILED).build());
   }
 
   public Mono<ServerResponse> deleteSomeEntity(ServerRequest request) {
@@ -88,24 +248,145 @@ public class SomeEntityHandler {
   }
 
   // -----------------------------------------------------------------------
-  // VALIDATION
+  // BULK ADMISSION
   // -----------------------------------------------------------------------
 
-  private void validate(SomeEntity someEntity) {
-    Errors errors = new BeanPropertyBindingResult(someEntity, "SomeEntity");
-    validator.validate(someEntity, errors);
-    if (errors.hasErrors()) {
-      throw new ServerWebInputException(errors.toString());
+  // Bulk operations hold an ingest slot until their response body terminates; when none is free
+  // the client is told to come back later rather than queueing here.
+  private <T> Mono<ServerResponse> admitted(ServerRequest request, Flux<T> results, Class<T> type) {
+    return ingestLimiter.tryAcquire()
+        .map(release -> ServerResponse.ok()
+            .contentType(streamType(request))
+            .body(results.doFinally(signal -> release.run()), type)
+            .doOnCancel(release))
+        .orElseGet(() -> ServerResponse.status(HttpStatus.TOO_MANY_REQUESTS)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(ingestLimiter.retryAfterSeconds()))
+            .build());
+  }
+
+  // limitRate keeps the decoder from reading far ahead of the statements
+  private <T> Flux<T> body(ServerRequest request, Class<T> type) {
+    return request.bodyToFlux(type).limitRate(ingestLimiter.prefetch());
+  }
+
+  // -----------------------------------------------------------------------
+  // REQUEST PARSING
+  // -----------------------------------------------------------------------
+
+  // JSON unless the client lists Smile ahead of JSON in Accept
+  private MediaType responseType(ServerRequest request) {
+    for (MediaType accepted : request.headers().accept()) {
+      if (RoutingConfig.APPLICATION_SMILE.equalsTypeAndSubtype(accepted)) {
+        return RoutingConfig.APPLICATION_SMILE;
+      }
+      if (MediaType.APPLICATION_JSON.equalsTypeAndSubtype(accepted)) {
+        break;
+      }
     }
+    return MediaType.APPLICATION_JSON;
+  }
+
+  // Spring joins Flux elements with text array delimiters, which is only valid for JSON;
+  // Smile results go out as separator-delimited documents instead.
+  private MediaType streamType(ServerRequest request) {
+    MediaType type = responseType(request);
+    return type.equals(RoutingConfig.APPLICATION_SMILE) ? RoutingConfig.APPLICATION_STREAM_SMILE : type;
+  }
+
+  private boolean wantsSmileStream(ServerRequest request) {
+    return request.headers().accept().stream()
+        .anyMatch(RoutingConfig.APPLICATION_STREAM_SMILE::equalsTypeAndSubtype);
   }
 
-  private void validateAll(List<SomeEntity> someEntities) {
-    // For lists, we just iterate and validate each
-    // Alternatively, you could use a custom List wrapper validator
-    Errors errors = new BeanPropertyBindingResult(someEntities, "SomeEntityList");
-    for (int i = 0; i < someEntities.size(); i++) {
-      validator.validate(someEntities.get(i), errors);
+  private boolean wantsStream(ServerRequest request) {
+    return request.headers().accept().stream()
+        .anyMatch(MediaType.APPLICATION_NDJSON::equalsTypeAndSubtype);
+  }
+
+  private static String etag(SomeEntity entity) {
+    return "\"" + entity.getVersion() + "\"";
+  }
+
+  // Strong tags only: a weak or foreign tag never matches, and "*" means any existing version.
+  // Every version named by the If-Match entity tags, across comma-separated lists and repeated
+  // headers; null when there is no condition or it is "*". If-Match compares strongly, so weak tags
+  // and tags that are not versions match nothing.
+  private Set<Long> ifMatchVersions(ServerRequest request) {
+    List<String> values = request.headers().header(HttpHeaders.IF_MATCH);
+    if (values.isEmpty()) {
+      return null;
+    }
+    Set<Long> versions = new HashSet<>();
+    for (String value : values) {
+      for (ETag tag : ETag.parse(value)) {
+        if (tag.isWildcard()) {
+          return null;
+        }
+        if (!tag.weak()) {
+          try {
+            versions.add(Long.valueOf(tag.tag()));
+          } catch (NumberFormatException ignored) {
+            // matches no version
+          }
+        }
+      }
     }
+    return versions.isEmpty() ? Set.of(UNMATCHABLE_VERSION) : versions;
+  }
+
+  // One version goes straight into the compare-and-set. Several are checked against the stored
+  // version, which the compare-and-set then holds the write to.
+  private Mono<SomeEntity> expecting(SomeEntity payload, Set<Long> versions) {
+    if (versions.size() == 1) {
+      payload.setVersion(versions.iterator().next());
+      return Mono.just(payload);
+    }
+    return dao.findById(payload.getId())
+        .switchIfEmpty(Mono.error(new IllegalArgumentException("Entity not found")))
+        .handle((current, sink) -> {
+          if (versions.contains(current.getVersion())) {
+            payload.setVersion(current.getVersion());
+            sink.next(payload);
+          } else {
+            sink.error(new VersionConflictException(payload.getId()));
+          }
+        });
+  }
+
+  // EventSource sends Last-Event-ID on reconnect; ?after= serves clients that cannot set headers
+  private long resumeFrom(ServerRequest request) {
+    String lastEventId = request.headers().firstHeader("Last-Event-ID");
+    if (lastEventId == null) {
+      return longParam(request, "after", -1L);
+    }
+    try {
+      return Long.parseLong(lastEventId.trim());
+    } catch (NumberFormatException e) {
+      throw new ServerWebInputException("Invalid Last-Event-ID");
+    }
+  }
+
+  private long longParam(ServerRequest request, String name, long defaultValue) {
+    try {
+      return request.queryParam(name).map(Long::parseLong).orElse(defaultValue);
+    } catch (NumberFormatException e) {
+      throw new ServerWebInputException("Invalid value for '" + name + "'");
+    }
+  }
+
+  // -----------------------------------------------------------------------
+  // VALIDATION
+  // -----------------------------------------------------------------------
+
+  private void requireId(SomeEntity someEntity) {
+    if (someEntity.getId() == null) {
+      throw new ServerWebInputException("id is required for every element");
+    }
+  }
+
+  private void validate(SomeEntity someEntity) {
+    Errors errors = new BeanPropertyBindingResult(someEntity, "SomeEntity");
+    validator.validate(someEntity, errors);
     if (errors.hasErrors()) {
       throw new ServerWebInputException(errors.toString());
     }
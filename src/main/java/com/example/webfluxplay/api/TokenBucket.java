@@ -0,0 +1,32 @@
+package com.example.webfluxplay.api;
+
+/**
+ * Classic token bucket on a nanosecond clock passed in by the caller. Starts full.
+ */
+final class TokenBucket {
+
+  private final double permitsPerNano;
+  private final double burst;
+  private double tokens;
+  private long last;
+
+  TokenBucket(double permitsPerSecond, int burst, long now) {
+    this.permitsPerNano = permitsPerSecond / 1e9;
+    this.burst = Math.max(1, burst);
+    this.tokens = this.burst;
+    this.last = now;
+  }
+
+  /** Takes a token: 0 when one was available, otherwise the nanoseconds until one will be. */
+  synchronized long tryTake(long now) {
+    if (now > last) {
+      tokens = Math.min(burst, tokens + (now - last) * permitsPerNano);
+      last = now;
+    }
+    if (tokens >= 1) {
+      tokens -= 1;
+      return 0;
+    }
+    return Math.max(1, (long) Math.ceil((1 - tokens) / permitsPerNano));
+  }
+}
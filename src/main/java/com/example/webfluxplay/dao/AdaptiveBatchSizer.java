@@ -0,0 +1,39 @@
+package com.example.webfluxplay.dao;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Picks the next bulk insert batch size from the latency of the batches before it: doubles while
+ * batches finish well under the target, halves when they overrun it.
+ */
+final class AdaptiveBatchSizer {
+
+  private final int min;
+  private final int max;
+  private final long targetNanos;
+  private final AtomicInteger size;
+
+  AdaptiveBatchSizer(int initial, int min, int max, Duration target) {
+    this.min = min;
+    this.max = max;
+    this.targetNanos = target.toNanos();
+    this.size = new AtomicInteger(Math.max(min, Math.min(initial, max)));
+  }
+
+  int current() {
+    return size.get();
+  }
+
+  void record(int rows, long elapsedNanos) {
+    if (rows < size.get()) {
+      // A short tail batch says nothing about how a full one would perform
+      return;
+    }
+    if (elapsedNanos > targetNanos) {
+      size.updateAndGet(s -> Math.max(min, s / 2));
+    } else if (elapsedNanos < targetNanos / 2) {
+      size.updateAndGet(s -> Math.min(max, s * 2));
+    }
+  }
+}
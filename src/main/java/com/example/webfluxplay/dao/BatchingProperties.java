@@ -0,0 +1,41 @@
+package com.example.webfluxplay.dao;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties("someentity.batching")
+public class BatchingProperties {
+  private final Window reads = new Window();
+  private final Window writes = new Window(false);
+
+  public Window getReads() { return reads; }
+  public Window getWrites() { return writes; }
+
+  public static class Window {
+    private boolean enabled;
+    private int maxSize = 100;
+    private Duration maxWait = Duration.ofMillis(2);
+    private int maxConcurrency = 4;
+
+    public Window() {
+      this(true);
+    }
+
+    public Window(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public int getMaxSize() { return maxSize; }
+    public void setMaxSize(int maxSize) { this.maxSize = maxSize; }
+
+    public Duration getMaxWait() { return maxWait; }
+    public void setMaxWait(Duration maxWait) { this.maxWait = maxWait; }
+
+    public int getMaxConcurrency() { return maxConcurrency; }
+    public void setMaxConcurrency(int maxConcurrency) { this.maxConcurrency = maxConcurrency; }
+  }
+}
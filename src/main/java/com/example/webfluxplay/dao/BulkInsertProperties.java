@@ -0,0 +1,33 @@
+package com.example.webfluxplay.dao;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties("someentity.bulk")
+public class BulkInsertProperties {
+  private int initialBatchSize = 100;
+  private int minBatchSize = 10;
+  private int maxBatchSize = 1000;
+  private Duration targetBatchLatency = Duration.ofMillis(50);
+  private int maxConcurrency = 2;
+  private int globalMaxConcurrency = 4;
+
+  public int getInitialBatchSize() { return initialBatchSize; }
+  public void setInitialBatchSize(int initialBatchSize) { this.initialBatchSize = initialBatchSize; }
+
+  public int getMinBatchSize() { return minBatchSize; }
+  public void setMinBatchSize(int minBatchSize) { this.minBatchSize = minBatchSize; }
+
+  public int getMaxBatchSize() { return maxBatchSize; }
+  public void setMaxBatchSize(int maxBatchSize) { this.maxBatchSize = maxBatchSize; }
+
+  public Duration getTargetBatchLatency() { return targetBatchLatency; }
+  public void setTargetBatchLatency(Duration targetBatchLatency) { this.targetBatchLatency = targetBatchLatency; }
+
+  public int getMaxConcurrency() { return maxConcurrency; }
+  public void setMaxConcurrency(int maxConcurrency) { this.maxConcurrency = maxConcurrency; }
+
+  public int getGlobalMaxConcurrency() { return globalMaxConcurrency; }
+  public void setGlobalMaxConcurrency(int globalMaxConcurrency) { this.globalMaxConcurrency = globalMaxConcurrency; }
+}
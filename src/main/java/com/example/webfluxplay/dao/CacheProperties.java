@@ -0,0 +1,21 @@
+package com.example.webfluxplay.dao;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties("someentity.cache")
+public class CacheProperties {
+  private boolean enabled = true;
+  private long maximumSize = 10_000;
+  private Duration ttl = Duration.ofMinutes(5);
+
+  public boolean isEnabled() { return enabled; }
+  public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+  public long getMaximumSize() { return maximumSize; }
+  public void setMaximumSize(long maximumSize) { this.maximumSize = maximumSize; }
+
+  public Duration getTtl() { return ttl; }
+  public void setTtl(Duration ttl) { this.ttl = ttl; }
+}
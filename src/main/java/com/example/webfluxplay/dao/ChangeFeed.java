@@ -0,0 +1,159 @@
+package com.example.webfluxplay.dao;
+
+import com.example.webfluxplay.model.ChangeEvent;
+import com.example.webfluxplay.model.SomeEntity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.Disposable;
+import reactor.core.Exceptions;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * In-process fan-out of committed writes. Events are numbered and the most recent ones are kept so a
+ * reconnecting client can resume after the last sequence it saw. Every subscriber has its own
+ * bounded buffer, so a slow consumer only ever loses its own events. Events reach subscribers on
+ * the feed's own thread, so writers never run consumer code.
+ */
+public final class ChangeFeed implements Disposable {
+
+  // Best effort: the sink never waits for a subscriber; the per-subscriber buffer absorbs bursts
+  private final Sinks.Many<ChangeEvent> sink = Sinks.many().multicast().directBestEffort();
+  // Writers queue events here in sequence order; the delivery thread hands them to the sink.
+  // Emission is serialized by the lock.
+  private final Sinks.Many<ChangeEvent> published = Sinks.unsafe().many().unicast().onBackpressureBuffer();
+  private final Scheduler delivery = Schedulers.newSingle("someentity-changes", true);
+  private final Disposable delivering;
+  private final ChangeStreamProperties properties;
+  private final Counter dropped;
+  private final Counter disconnected;
+
+  // Guards the sequence and the replay window only
+  private final Object lock = new Object();
+  private final Deque<ChangeEvent> recent = new ArrayDeque<>();
+  private long sequence;
+
+  public ChangeFeed(ChangeStreamProperties properties, MeterRegistry registry) {
+    this.properties = properties;
+    this.dropped = Counter.builder("someentity.changes.dropped")
+        .description("Change events dropped from a slow subscriber's buffer")
+        .register(registry);
+    this.disconnected = Counter.builder("someentity.changes.disconnected")
+        .description("Subscribers cut off because their buffer overflowed")
+        .register(registry);
+    Gauge.builder("someentity.changes.subscribers", sink, Sinks.Many::currentSubscriberCount)
+        .register(registry);
+    this.delivering = published.asFlux()
+        .publishOn(delivery)
+        // Having no subscribers is fine
+        .subscribe(sink::tryEmitNext);
+  }
+
+  void publish(ChangeEvent.Type type, Long id, SomeEntity entity) {
+    synchronized (lock) {
+      ChangeEvent event = new ChangeEvent(++sequence, type, id, entity);
+      recent.addLast(event);
+      if (recent.size() > properties.getReplaySize()) {
+        recent.removeFirst();
+      }
+      // Only queues the event; inside the lock so the queue stays in sequence order
+      published.tryEmitNext(event);
+    }
+  }
+
+  /**
+   * Live events, preceded by the retained events after {@code afterSequence} when it is not negative.
+   * If events after it have already been evicted (or it comes from an earlier run) the stream starts
+   * with a {@link ChangeEvent.Type#RESET}. The replay is sent as the subscriber asks for it; only
+   * events published after it was taken go through the subscriber's bounded buffer.
+   */
+  public Flux<ChangeEvent> events(long afterSequence) {
+    if (afterSequence < 0) {
+      return buffered(follow(-1));
+    }
+    return Flux.defer(() -> {
+      List<ChangeEvent> replay = new ArrayList<>();
+      long last;
+      synchronized (lock) {
+        replay(afterSequence, replay::add);
+        last = sequence;
+      }
+      return Flux.fromIterable(replay).concatWith(buffered(follow(last)));
+    });
+  }
+
+  // Whatever was published after `after` (none while it is negative), then live events. The
+  // subscriber is attached on the delivery thread, so no event reaches the sink in between: events up
+  // to the sequence read here come from the replay window, later ones live.
+  private Flux<ChangeEvent> follow(long after) {
+    return Flux.create(emitter -> {
+      try {
+        delivery.schedule(() -> {
+          if (emitter.isCancelled()) {
+            return;
+          }
+          List<ChangeEvent> missed = new ArrayList<>();
+          long last;
+          synchronized (lock) {
+            if (after >= 0) {
+              replay(after, missed::add);
+            }
+            last = sequence;
+          }
+          missed.forEach(emitter::next);
+          // Events published before the sequence was read may still be queued for delivery
+          Disposable live = sink.asFlux()
+              .filter(event -> event.getSequence() > last)
+              .subscribe(emitter::next, emitter::error, emitter::complete);
+          emitter.onDispose(live);
+        });
+      } catch (RejectedExecutionException e) {
+        emitter.error(new IllegalStateException("ChangeFeed has been disposed", e));
+      }
+    });
+  }
+
+  // Caller holds the lock
+  private void replay(long after, Consumer<ChangeEvent> out) {
+    long oldest = recent.isEmpty() ? sequence + 1 : recent.peekFirst().getSequence();
+    if (after < oldest - 1 || after > sequence) {
+      out.accept(new ChangeEvent(oldest - 1, ChangeEvent.Type.RESET, null, null));
+    }
+    recent.stream()
+        .filter(event -> event.getSequence() > after)
+        .forEach(out);
+  }
+
+  /** Stops delivery and its thread; subscribers get no further events. */
+  @Override
+  public void dispose() {
+    delivering.dispose();
+    delivery.dispose();
+  }
+
+  @Override
+  public boolean isDisposed() {
+    return delivery.isDisposed();
+  }
+
+  private Flux<ChangeEvent> buffered(Flux<ChangeEvent> source) {
+    if (properties.getOverflow() == ChangeStreamProperties.Overflow.DISCONNECT) {
+      return source
+          .onBackpressureBuffer(properties.getBufferSize(), event -> { }, BufferOverflowStrategy.ERROR)
+          .doOnError(Exceptions::isOverflow, e -> disconnected.increment());
+    }
+    return source.onBackpressureBuffer(properties.getBufferSize(), event -> dropped.increment(),
+        BufferOverflowStrategy.DROP_OLDEST);
+  }
+}
@@ -0,0 +1,29 @@
+package com.example.webfluxplay.dao;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties("someentity.changes")
+public class ChangeStreamProperties {
+
+  /** What happens to a subscriber whose buffer is full. */
+  public enum Overflow { DROP_OLDEST, DISCONNECT }
+
+  private int replaySize = 1000;
+  private int bufferSize = 256;
+  private Overflow overflow = Overflow.DROP_OLDEST;
+  private Duration heartbeat = Duration.ofSeconds(15);
+
+  public int getReplaySize() { return replaySize; }
+  public void setReplaySize(int replaySize) { this.replaySize = replaySize; }
+
+  public int getBufferSize() { return bufferSize; }
+  public void setBufferSize(int bufferSize) { this.bufferSize = bufferSize; }
+
+  public Overflow getOverflow() { return overflow; }
+  public void setOverflow(Overflow overflow) { this.overflow = overflow; }
+
+  public Duration getHeartbeat() { return heartbeat; }
+  public void setHeartbeat(Duration heartbeat) { this.heartbeat = heartbeat; }
+}
@@ -0,0 +1,66 @@
+package com.example.webfluxplay.dao;
+
+import java.time.Duration;
+
+/**
+ * Connection URL and pool sizing for one database. Bound per backend in {@link DaoConfiguration}.
+ */
+public class ConnectionPoolProperties {
+  private String name = "default";
+  private String url;
+  private String username;
+  private String password;
+
+  private int initialSize = 2;
+  private int minIdle = 0;
+  private int maxSize = 10;
+  private Duration maxIdleTime = Duration.ofMinutes(30);
+  private Duration maxLifeTime;
+  private Duration maxAcquireTime;
+  private Duration maxCreateConnectionTime;
+  private int acquireRetry = 1;
+  private String validationQuery;
+  private boolean warmUp = false;
+
+  public String getName() { return name; }
+  public void setName(String name) { this.name = name; }
+
+  public String getUrl() { return url; }
+  public void setUrl(String url) { this.url = url; }
+
+  public String getUsername() { return username; }
+  public void setUsername(String username) { this.username = username; }
+
+  public String getPassword() { return password; }
+  public void setPassword(String password) { this.password = password; }
+
+  public int getInitialSize() { return initialSize; }
+  public void setInitialSize(int initialSize) { this.initialSize = initialSize; }
+
+  public int getMinIdle() { return minIdle; }
+  public void setMinIdle(int minIdle) { this.minIdle = minIdle; }
+
+  public int getMaxSize() { return maxSize; }
+  public void setMaxSize(int maxSize) { this.maxSize = maxSize; }
+
+  public Duration getMaxIdleTime() { return maxIdleTime; }
+  public void setMaxIdleTime(Duration maxIdleTime) { this.maxIdleTime = maxIdleTime; }
+
+  public Duration getMaxLifeTime() { return maxLifeTime; }
+  public void setMaxLifeTime(Duration maxLifeTime) { this.maxLifeTime = maxLifeTime; }
+
+  public Duration getMaxAcquireTime() { return maxAcquireTime; }
+  public void setMaxAcquireTime(Duration maxAcquireTime) { this.maxAcquireTime = maxAcquireTime; }
+
+  public Duration getMaxCreateConnectionTime() { return maxCreateConnectionTime; }
+  public void setMaxCreateConnectionTime(Duration maxCreateConnectionTime) { this.maxCreateConnectionTime = maxCreateConnectionTime; }
+
+  public int getAcquireRetry() { return acquireRetry; }
+  public void setAcquireRetry(int acquireRetry) { this.acquireRetry = acquireRetry; }
+
+  public String getValidationQuery() { return validationQuery; }
+  public void setValidationQuery(String validationQuery) { this.validationQuery = validationQuery; }
+
+  public boolean isWarmUp() { return warmUp; }
+  public void setWarmUp(boolean warmUp) { this.warmUp = warmUp; }
+}
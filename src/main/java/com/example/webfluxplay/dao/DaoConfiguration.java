@@ -0,0 +1,21 @@
+package com.example.webfluxplay.dao;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration(proxyBeanMethods = false)
+public class DaoConfiguration {
+
+  @Bean
+  public SqlDialect sqlDialect(@Value("${someentity.dialect:h2}") String dialect) {
+    return SqlDialect.of(dialect);
+  }
+
+  @Bean
+  @ConfigurationProperties("someentity.datasource")
+  public ConnectionPoolProperties poolProperties() {
+    return new ConnectionPoolProperties();
+  }
+}
@@ -0,0 +1,87 @@
+package com.example.webfluxplay.dao;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Latency timers, error counters and row counters for DAO operations, applied as Reactor operators.
+ */
+final class DaoMetrics {
+
+  private final MeterRegistry registry;
+
+  DaoMetrics(MeterRegistry registry) {
+    this.registry = registry;
+  }
+
+  /** Times a read, counting every emitted element as a row read. */
+  <T> Flux<T> read(String operation, Flux<T> source) {
+    Counter rows = rows("someentity.dao.rows.read", operation);
+    return timed(operation, source.doOnNext(row -> rows.increment()));
+  }
+
+  <T> Mono<T> read(String operation, Mono<T> source) {
+    return read(operation, source.flux()).singleOrEmpty();
+  }
+
+  /** Times a read that emits encoded bytes rather than rows; {@code rows} is consulted on completion. */
+  <T> Flux<T> readEncoded(String operation, Flux<T> source, LongSupplier rows) {
+    Counter counter = rows("someentity.dao.rows.read", operation);
+    return timed(operation, source.doOnComplete(() -> counter.increment(rows.getAsLong())));
+  }
+
+  /** Times a write, counting every emitted element as a row written. */
+  <T> Flux<T> write(String operation, Flux<T> source) {
+    Counter rows = rows("someentity.dao.rows.written", operation);
+    return timed(operation, source.doOnNext(row -> rows.increment()));
+  }
+
+  <T> Mono<T> write(String operation, Mono<T> source) {
+    return write(operation, source.flux()).singleOrEmpty();
+  }
+
+  /** Times a write that reports affected-row counts rather than rows. */
+  Mono<Long> rowsWritten(String operation, Flux<Long> rowsUpdated) {
+    Counter rows = rows("someentity.dao.rows.written", operation);
+    return timed(operation, rowsUpdated)
+        .reduce(0L, Long::sum)
+        .doOnNext(rows::increment);
+  }
+
+  // Every DAO operation passes through here, so this is where the caller's Deadline bounds it as a whole
+  private <T> Flux<T> timed(String operation, Flux<T> source) {
+    return Flux.defer(() -> {
+      Timer.Sample sample = Timer.start(registry);
+      return Deadline.bound(source)
+          .doOnError(err -> Counter.builder("someentity.dao.errors")
+              .tag("operation", operation)
+              .tag("exception", err.getClass().getSimpleName())
+              .register(registry)
+              .increment())
+          .doFinally(signal -> sample.stop(Timer.builder("someentity.dao")
+              .description("DAO operation latency")
+              .tag("operation", operation)
+              .tag("outcome", outcome(signal))
+              .publishPercentileHistogram()
+              .register(registry)));
+    });
+  }
+
+  private Counter rows(String name, String operation) {
+    return Counter.builder(name).tag("operation", operation).register(registry);
+  }
+
+  private static String outcome(SignalType signal) {
+    return switch (signal) {
+      case ON_COMPLETE -> "success";
+      case ON_ERROR -> "error";
+      default -> "cancelled";
+    };
+  }
+}
@@ -0,0 +1,54 @@
+package com.example.webfluxplay.dao;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Reactor Context deadline for a pipeline, e.g. the budget of the request it serves. The DAO bounds
+ * connection acquisition, statement execution and every whole operation by the time left, and
+ * cancels whatever is still running once it is up, which hands the connection back to the pool.
+ */
+public final class Deadline {
+
+  private static final String KEY = Deadline.class.getName();
+
+  private Deadline() {
+  }
+
+  /** Sets the deadline {@code budget} from now, unless an earlier one is already in place. */
+  public static Context after(Context context, Duration budget) {
+    return earliest(context, System.nanoTime() + budget.toNanos());
+  }
+
+  /** Adds the deadline of {@code other}, if any, unless {@code context} already has an earlier one. */
+  static Context within(Context context, ContextView other) {
+    Long deadline = other.getOrDefault(KEY, null);
+    return deadline == null ? context : earliest(context, deadline);
+  }
+
+  private static Context earliest(Context context, long deadline) {
+    Long existing = context.getOrDefault(KEY, null);
+    return existing != null && existing - deadline <= 0 ? context : context.put(KEY, deadline);
+  }
+
+  /** Time left before the deadline, empty without one; zero or negative once it has passed. */
+  static Optional<Duration> remaining(ContextView context) {
+    Long deadline = context.getOrDefault(KEY, null);
+    return deadline == null ? Optional.empty() : Optional.of(Duration.ofNanos(deadline - System.nanoTime()));
+  }
+
+  /** {@code source}, failing with {@link DeadlineExceededException} if it has not completed by the deadline. */
+  static <T> Flux<T> bound(Flux<T> source) {
+    return Flux.deferContextual(context -> remaining(context)
+        .map(left -> left.isNegative() || left.isZero()
+            ? Flux.<T>error(new DeadlineExceededException())
+            // One timer for the whole operation, however many rows it emits; its error cancels the source
+            : source.takeUntilOther(Mono.delay(left).then(Mono.error(DeadlineExceededException::new))))
+        .orElse(source));
+  }
+}
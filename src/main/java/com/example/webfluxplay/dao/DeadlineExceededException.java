@@ -0,0 +1,13 @@
+package com.example.webfluxplay.dao;
+
+/**
+ * The {@link Deadline} of the calling pipeline passed before the database work finished.
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  public DeadlineExceededException() {
+    super("Request deadline exceeded");
+  }
+}
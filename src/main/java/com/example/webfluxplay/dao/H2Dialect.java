@@ -0,0 +1,55 @@
+package com.example.webfluxplay.dao;
+
+public final class H2Dialect implements SqlDialect {
+
+  @Override
+  public String name() {
+    return "h2";
+  }
+
+  @Override
+  public String bindMarker(int index, String name) {
+    return "$" + (index + 1);
+  }
+
+  @Override
+  public String createTable(boolean generatedIds) {
+    return "CREATE TABLE IF NOT EXISTS some_entity"
+        + " (id " + (generatedIds ? "IDENTITY" : "BIGINT") + " PRIMARY KEY, svalue VARCHAR(255), version BIGINT DEFAULT 0 NOT NULL);"
+        + " CREATE INDEX IF NOT EXISTS ix_some_entity_svalue ON some_entity (svalue, id)";
+  }
+
+  @Override
+  public String createIdSequence() {
+    return "CREATE SEQUENCE IF NOT EXISTS some_entity_hilo START WITH 1";
+  }
+
+  @Override
+  public String migrateSchema() {
+    return "ALTER TABLE some_entity ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL";
+  }
+
+  @Override
+  public String limitClause(String marker) {
+    return " LIMIT " + marker;
+  }
+
+  // FINAL TABLE reads the rows as the UPDATE left them, in the same statement
+  @Override
+  public String updateReturning(boolean checkVersion) {
+    return "SELECT id, svalue, version FROM FINAL TABLE (UPDATE some_entity"
+        + " SET svalue = COALESCE(" + bindMarker(0, "svalue") + ", svalue), version = version + 1"
+        + " WHERE id = " + bindMarker(1, "id")
+        + (checkVersion ? " AND version = " + bindMarker(2, "version") + ")" : ")");
+  }
+
+  @Override
+  public String deleteReturningIds(int count) {
+    return "SELECT id FROM OLD TABLE (DELETE FROM some_entity WHERE id IN (" + bindMarkers(count, "id") + "))";
+  }
+
+  @Override
+  public int maxRowsPerInsert() {
+    return 1000;
+  }
+}
@@ -0,0 +1,75 @@
+package com.example.webfluxplay.dao;
+
+import io.r2dbc.dao.R2dbcDao;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Hi/lo ids: each sequence value {@code hi} reserves {@code hi * blockSize} up to, not including,
+ * {@code (hi + 1) * blockSize}. Requests are served from the current block without touching the
+ * database; only a request that runs past it fetches new blocks. Concurrent fetches each get their
+ * own blocks from the sequence, so the worst case is a gap, never a duplicate.
+ */
+final class HiLoIdAllocator implements IdAllocator {
+
+  private final R2dbcDao dao;
+  private final String nextHiSql;
+  private final int blockSize;
+
+  // Next free id and end (exclusive) of the current block
+  private final Object lock = new Object();
+  private long next;
+  private long end;
+
+  HiLoIdAllocator(R2dbcDao dao, String nextHiSql, int blockSize) {
+    if (blockSize < 1) {
+      throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+    }
+    this.dao = dao;
+    this.nextHiSql = nextHiSql;
+    this.blockSize = blockSize;
+  }
+
+  @Override
+  public Mono<long[]> allocate(int count) {
+    long[] ids = new long[count];
+    int taken;
+    synchronized (lock) {
+      taken = (int) Math.min(count, end - next);
+      for (int i = 0; i < taken; i++) {
+        ids[i] = next++;
+      }
+    }
+    if (taken == count) {
+      return Mono.just(ids);
+    }
+    int missing = count - taken;
+    return Flux.range(0, (missing + blockSize - 1) / blockSize)
+        .concatMap(i -> dao.select(nextHiSql, (row, meta) -> row.get(0, Long.class)).single())
+        .collectList()
+        .map(his -> {
+          int filled = taken;
+          for (long hi : his) {
+            long start = hi * blockSize;
+            int fromBlock = Math.min(blockSize, count - filled);
+            for (int i = 0; i < fromBlock; i++) {
+              ids[filled++] = start + i;
+            }
+            if (fromBlock < blockSize) {
+              keep(start + fromBlock, start + blockSize);
+            }
+          }
+          return ids;
+        });
+  }
+
+  // The unused tail of a fresh block becomes current unless another fetch already refilled it
+  private void keep(long from, long to) {
+    synchronized (lock) {
+      if (next >= end) {
+        next = from;
+        end = to;
+      }
+    }
+  }
+}
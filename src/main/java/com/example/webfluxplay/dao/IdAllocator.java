@@ -0,0 +1,33 @@
+package com.example.webfluxplay.dao;
+
+import io.r2dbc.dao.R2dbcDao;
+import reactor.core.publisher.Mono;
+
+/**
+ * Hands out ids for rows that are about to be inserted.
+ */
+interface IdAllocator {
+
+  /** {@code count} ids that were never handed out before. */
+  Mono<long[]> allocate(int count);
+
+  /** The allocator for {@code properties}, or null when the database generates ids. */
+  static IdAllocator of(IdProperties properties, SqlDialect dialect, R2dbcDao dao) {
+    return switch (properties.getStrategy()) {
+      case DATABASE -> null;
+      case HILO -> new HiLoIdAllocator(dao, dialect.nextIdBlock(), properties.getBlockSize());
+      case TIME -> timeOrdered(new ShardedIdGenerator(properties.getNodeId(), 1), 0);
+    };
+  }
+
+  /** Ids from {@code generator} naming {@code shard}, so the rows they go to can be found by id alone. */
+  static IdAllocator timeOrdered(ShardedIdGenerator generator, int shard) {
+    return count -> Mono.fromSupplier(() -> {
+      long[] ids = new long[count];
+      for (int i = 0; i < count; i++) {
+        ids[i] = generator.next(shard);
+      }
+      return ids;
+    });
+  }
+}
@@ -0,0 +1,35 @@
+package com.example.webfluxplay.dao;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Where the ids of new rows come from. Anything but {@link Strategy#DATABASE} assigns ids before the
+ * insert, so inserts return no result set and entities are paired with their ids by construction.
+ */
+@ConfigurationProperties("someentity.ids")
+public class IdProperties {
+
+  public enum Strategy {
+    /** IDENTITY column; every insert asks the driver for the generated keys. */
+    DATABASE,
+    /** Blocks of {@code blockSize} ids, one sequence round trip per block. */
+    HILO,
+    /** 64-bit time, node and sequence ids made locally; no database round trip at all. */
+    TIME
+  }
+
+  private Strategy strategy = Strategy.DATABASE;
+  // Ids per sequence value; changing it for an existing sequence can hand out ids twice
+  private int blockSize = 1000;
+  // Distinguishes application instances in TIME ids; must be unique per instance
+  private int nodeId = 0;
+
+  public Strategy getStrategy() { return strategy; }
+  public void setStrategy(Strategy strategy) { this.strategy = strategy; }
+
+  public int getBlockSize() { return blockSize; }
+  public void setBlockSize(int blockSize) { this.blockSize = blockSize; }
+
+  public int getNodeId() { return nodeId; }
+  public void setNodeId(int nodeId) { this.nodeId = nodeId; }
+}
@@ -0,0 +1,12 @@
+package com.example.webfluxplay.dao;
+
+import org.springframework.core.io.buffer.DataBuffer;
+
+import java.util.List;
+
+/**
+ * A keyset page already encoded as a JSON array. {@code lastId} is the id of the final row, or null
+ * for an empty page.
+ */
+public record JsonPage(List<DataBuffer> chunks, long rows, Long lastId) {
+}
@@ -0,0 +1,138 @@
+package com.example.webfluxplay.dao;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.pool.PoolMetrics;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.ToIntFunction;
+
+import static io.r2dbc.spi.ConnectionFactoryOptions.PASSWORD;
+import static io.r2dbc.spi.ConnectionFactoryOptions.USER;
+
+/**
+ * An r2dbc-pool {@link ConnectionPool} built from {@link ConnectionPoolProperties}, publishing
+ * live pool gauges and an acquire-latency timer.
+ */
+@Slf4j
+public final class ManagedConnectionPool implements ConnectionFactory {
+
+  private final ConnectionPool pool;
+  private final Timer acquireTimer;
+  private final ConnectionPoolProperties properties;
+  private volatile boolean statementTimeouts;
+
+  public ManagedConnectionPool(ConnectionPoolProperties properties, MeterRegistry meterRegistry) {
+    this.properties = properties;
+    ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.parse(properties.getUrl()).mutate();
+    if (properties.getUsername() != null) {
+      options.option(USER, properties.getUsername());
+    }
+    if (properties.getPassword() != null) {
+      options.option(PASSWORD, properties.getPassword());
+    }
+
+    ConnectionPoolConfiguration.Builder configuration = ConnectionPoolConfiguration.builder(ConnectionFactories.get(options.build()))
+        .name(properties.getName())
+        .initialSize(properties.getInitialSize())
+        .minIdle(properties.getMinIdle())
+        .maxSize(properties.getMaxSize())
+        .maxIdleTime(properties.getMaxIdleTime())
+        .acquireRetry(properties.getAcquireRetry());
+    if (properties.getMaxLifeTime() != null) {
+      configuration.maxLifeTime(properties.getMaxLifeTime());
+    }
+    if (properties.getMaxAcquireTime() != null) {
+      configuration.maxAcquireTime(properties.getMaxAcquireTime());
+    }
+    if (properties.getMaxCreateConnectionTime() != null) {
+      configuration.maxCreateConnectionTime(properties.getMaxCreateConnectionTime());
+    }
+    if (properties.getValidationQuery() != null) {
+      configuration.validationQuery(properties.getValidationQuery());
+    }
+    this.pool = new ConnectionPool(configuration.build());
+
+    gauge(meterRegistry, "r2dbc.pool.acquired", properties.getName(), PoolMetrics::acquiredSize);
+    gauge(meterRegistry, "r2dbc.pool.allocated", properties.getName(), PoolMetrics::allocatedSize);
+    gauge(meterRegistry, "r2dbc.pool.idle", properties.getName(), PoolMetrics::idleSize);
+    gauge(meterRegistry, "r2dbc.pool.pending", properties.getName(), PoolMetrics::pendingAcquireSize);
+    gauge(meterRegistry, "r2dbc.pool.max.allocated", properties.getName(), PoolMetrics::getMaxAllocatedSize);
+    this.acquireTimer = Timer.builder("r2dbc.pool.acquire")
+        .description("Time spent waiting for a pooled connection")
+        .tag("name", properties.getName())
+        .publishPercentileHistogram()
+        .register(meterRegistry);
+  }
+
+  /** Opens connections up to the initial size; completes immediately when warm-up is disabled. */
+  public Mono<Integer> warmUp() {
+    if (!properties.isWarmUp()) {
+      return Mono.just(0);
+    }
+    return pool.warmup()
+        .doOnNext(count -> log.info("Warmed up {} connections for pool {}", count, properties.getName()));
+  }
+
+  /**
+   * Acquires a connection within the caller's {@link Deadline}, if any, and sets the time left as its
+   * statement timeout. Once any caller has used a deadline every connection gets a timeout, zero for
+   * none, so one set for an earlier borrower never carries over.
+   */
+  @Override
+  public Mono<Connection> create() {
+    return Mono.deferContextual(context -> {
+      Optional<Duration> remaining = Deadline.remaining(context);
+      if (remaining.isPresent() && (remaining.get().isNegative() || remaining.get().isZero())) {
+        return Mono.error(new DeadlineExceededException());
+      }
+      Timer.Sample sample = Timer.start();
+      Mono<Connection> acquire = pool.create().doOnSuccess(conn -> sample.stop(acquireTimer));
+      if (remaining.isEmpty() && !statementTimeouts) {
+        return acquire;
+      }
+      statementTimeouts = true;
+      return remaining.map(left -> acquire.timeout(left, Mono.error(DeadlineExceededException::new))).orElse(acquire)
+          .flatMap(conn -> {
+            // Zero would mean no timeout, so a deadline that ran out meanwhile gets the shortest one
+            Duration timeout = Deadline.remaining(context)
+                .map(left -> left.isNegative() || left.isZero() ? Duration.ofMillis(1) : left)
+                .orElse(Duration.ZERO);
+            return Mono.from(conn.setStatementTimeout(timeout))
+                .then(Mono.just(conn))
+                .onErrorResume(err -> Mono.from(conn.close()).then(Mono.error(err)));
+          });
+    });
+  }
+
+  @Override
+  public ConnectionFactoryMetadata getMetadata() {
+    return pool.getMetadata();
+  }
+
+  /** Closes every connection and refuses further acquires. */
+  public void close() {
+    pool.dispose();
+  }
+
+  public PoolMetrics metrics() {
+    return pool.getMetrics().orElseThrow();
+  }
+
+  private void gauge(MeterRegistry registry, String name, String poolName, ToIntFunction<PoolMetrics> value) {
+    Gauge.builder(name, pool, p -> p.getMetrics().map(value::applyAsInt).orElse(0))
+        .tag("name", poolName)
+        .register(registry);
+  }
+}
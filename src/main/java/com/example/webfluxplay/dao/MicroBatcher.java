@@ -0,0 +1,234 @@
+package com.example.webfluxplay.dao;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Collects single-item calls arriving within a small time/size window and resolves them with one
+ * batched call. The batch function must return one result per input, in input order, using
+ * {@code null} for "no result". With a single-item function, a failed batch is retried item by item
+ * so only the callers whose own item fails see an error.
+ * <p>
+ * A batch serves every caller in its window, so it runs under the earliest of their {@link Deadline}s
+ * and reads the primary if any of them requires it ({@link ReadConsistency}). It is cancelled once
+ * all of them have cancelled.
+ */
+public final class MicroBatcher<T, R> implements Disposable {
+
+  private record Pending<T, R>(T item, ContextView context, Sinks.One<R> result) {}
+
+  private static final class Window<T, R> {
+    private final List<Pending<T, R>> members = new ArrayList<>();
+    // Members that have not cancelled; only grows while the window is open
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final Sinks.Empty<Void> abandoned = Sinks.empty();
+    private volatile boolean closed;
+
+    void leave() {
+      if (waiting.decrementAndGet() == 0 && closed) {
+        abandoned.tryEmitEmpty();
+      }
+    }
+
+    Context context() {
+      Context context = Context.empty();
+      for (Pending<T, R> member : members) {
+        context = Deadline.within(context, member.context());
+        if (ReadConsistency.requiresPrimary(member.context())) {
+          context = ReadConsistency.primary(context);
+        }
+      }
+      return context;
+    }
+
+    void fail(Throwable error) {
+      members.forEach(pending -> pending.result().tryEmitError(error));
+    }
+  }
+
+  // Closed windows wait here while all batch slots are busy. Emission is serialized by dispatchLock
+  // rather than retried on contention, so it can only fail once the batcher is disposed.
+  private final Sinks.Many<Window<T, R>> windows = Sinks.unsafe().many().unicast().onBackpressureBuffer();
+  private final Object dispatchLock = new Object();
+  // Windows handed to the sink and not yet resolved, so disposal can fail their callers
+  private final Set<Window<T, R>> unresolved = ConcurrentHashMap.newKeySet();
+  private final Disposable subscription;
+  private final Function<List<T>, Mono<List<R>>> batchFunction;
+  private final Function<T, Mono<R>> singleFunction;
+  private final int maxSize;
+  private final long maxWaitNanos;
+
+  // The open window; generation tells a stale timer that its window was already closed by size
+  private final Object lock = new Object();
+  private Window<T, R> open = new Window<>();
+  private long generation;
+  private boolean disposed;
+
+  public MicroBatcher(BatchingProperties.Window window, Function<List<T>, Mono<List<R>>> batchFunction) {
+    this(window, batchFunction, null);
+  }
+
+  public MicroBatcher(BatchingProperties.Window window,
+                      Function<List<T>, Mono<List<R>>> batchFunction,
+                      Function<T, Mono<R>> singleFunction) {
+    this.batchFunction = batchFunction;
+    this.singleFunction = singleFunction;
+    this.maxSize = window.getMaxSize();
+    this.maxWaitNanos = window.getMaxWait().toNanos();
+    this.subscription = windows.asFlux()
+        .flatMap(this::run, window.getMaxConcurrency())
+        .subscribe();
+  }
+
+  public Mono<R> submit(T item) {
+    return Mono.deferContextual(context -> {
+      Sinks.One<R> result = Sinks.one();
+      Window<T, R> window = add(new Pending<>(item, context, result));
+      return result.asMono().doOnCancel(window::leave);
+    });
+  }
+
+  // Windows are cut by hand rather than with bufferTimeout, which drops the odd element when its
+  // timer races an arriving item.
+  private Window<T, R> add(Pending<T, R> pending) {
+    Window<T, R> joined;
+    Window<T, R> closed = null;
+    long startedGeneration = -1;
+    synchronized (lock) {
+      joined = open;
+      if (disposed) {
+        pending.result().tryEmitError(new IllegalStateException("MicroBatcher has been disposed"));
+        return joined;
+      }
+      open.members.add(pending);
+      open.waiting.incrementAndGet();
+      if (open.members.size() >= maxSize) {
+        closed = cut();
+      } else if (open.members.size() == 1) {
+        startedGeneration = generation;
+      }
+    }
+    if (closed != null) {
+      dispatch(closed);
+    } else if (startedGeneration >= 0) {
+      long expected = startedGeneration;
+      Schedulers.parallel().schedule(() -> closeOnTimeout(expected), maxWaitNanos, TimeUnit.NANOSECONDS);
+    }
+    return joined;
+  }
+
+  private void closeOnTimeout(long expected) {
+    Window<T, R> closed;
+    synchronized (lock) {
+      if (generation != expected || open.members.isEmpty()) {
+        return;
+      }
+      closed = cut();
+    }
+    dispatch(closed);
+  }
+
+  private Window<T, R> cut() {
+    Window<T, R> closed = open;
+    closed.closed = true;
+    open = new Window<>();
+    generation++;
+    return closed;
+  }
+
+  // Size-closed and timer-closed windows arrive from different threads
+  private void dispatch(Window<T, R> closed) {
+    unresolved.add(closed);
+    Sinks.EmitResult emitted;
+    synchronized (dispatchLock) {
+      emitted = windows.tryEmitNext(closed);
+    }
+    if (emitted.isFailure()) {
+      unresolved.remove(closed);
+      closed.fail(new IllegalStateException("MicroBatcher has been disposed"));
+    }
+  }
+
+  private Mono<Void> run(Window<T, R> window) {
+    List<Pending<T, R>> batch = window.members;
+    List<T> items = batch.stream().map(Pending::item).toList();
+    return Mono.defer(() -> window.waiting.get() > 0 ? batchFunction.apply(items) : Mono.<List<R>>empty())
+        .takeUntilOther(window.abandoned.asMono())
+        .contextWrite(window.context())
+        .defaultIfEmpty(List.of())
+        .doOnNext(results -> {
+          for (int i = 0; i < batch.size(); i++) {
+            resolve(batch.get(i), i < results.size() ? results.get(i) : null);
+          }
+        })
+        .then()
+        // A failed batch only fails its own callers; the batcher keeps running
+        .onErrorResume(e -> singleFunction != null && batch.size() > 1
+            ? oneByOne(batch)
+            : Mono.fromRunnable(() -> window.fail(e)))
+        .doFinally(signal -> unresolved.remove(window));
+  }
+
+  // One bad item fails the whole batched call, so each item gets a call of its own
+  private Mono<Void> oneByOne(List<Pending<T, R>> batch) {
+    return Flux.fromIterable(batch)
+        .concatMap(pending -> Mono.defer(() -> singleFunction.apply(pending.item()))
+            .contextWrite(pending.context())
+            .doOnSuccess(value -> resolve(pending, value))
+            .onErrorResume(e -> {
+              pending.result().tryEmitError(e);
+              return Mono.empty();
+            }))
+        .then();
+  }
+
+  private void resolve(Pending<T, R> pending, R value) {
+    if (value == null) {
+      pending.result().tryEmitEmpty();
+    } else {
+      pending.result().tryEmitValue(value);
+    }
+  }
+
+  /**
+   * Stops batching: callers still waiting, queued or in flight, fail with {@link IllegalStateException}
+   * and later submits fail straight away.
+   */
+  @Override
+  public void dispose() {
+    Window<T, R> left;
+    synchronized (lock) {
+      if (disposed) {
+        return;
+      }
+      disposed = true;
+      left = cut();
+    }
+    synchronized (dispatchLock) {
+      windows.tryEmitComplete();
+    }
+    subscription.dispose();
+    IllegalStateException error = new IllegalStateException("MicroBatcher has been disposed");
+    left.fail(error);
+    unresolved.forEach(window -> window.fail(error));
+    unresolved.clear();
+  }
+
+  @Override
+  public boolean isDisposed() {
+    return subscription.isDisposed();
+  }
+}
@@ -0,0 +1,92 @@
+package com.example.webfluxplay.dao;
+
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public final class MsSqlDialect implements SqlDialect {
+
+  @Override
+  public String name() {
+    return "mssql";
+  }
+
+  // Named markers; the driver still binds them by index in order of appearance.
+  @Override
+  public String bindMarker(int index, String name) {
+    return "@" + name;
+  }
+
+  @Override
+  public String createTable(boolean generatedIds) {
+    return """
+        IF OBJECT_ID(N'some_entity', N'U') IS NULL
+        CREATE TABLE some_entity (
+            id BIGINT %s PRIMARY KEY,
+            svalue VARCHAR(255),
+            version BIGINT NOT NULL DEFAULT 0
+        );
+        IF NOT EXISTS (SELECT 1 FROM sys.indexes
+                       WHERE name = N'ix_some_entity_svalue' AND object_id = OBJECT_ID(N'some_entity'))
+        CREATE INDEX ix_some_entity_svalue ON some_entity (svalue, id)
+        """.formatted(generatedIds ? "IDENTITY(1,1)" : "NOT NULL");
+  }
+
+  @Override
+  public String createIdSequence() {
+    return "IF OBJECT_ID(N'some_entity_hilo', N'SO') IS NULL"
+        + " CREATE SEQUENCE some_entity_hilo AS BIGINT START WITH 1 INCREMENT BY 1";
+  }
+
+  @Override
+  public String migrateSchema() {
+    return "IF COL_LENGTH(N'some_entity', N'version') IS NULL"
+        + " ALTER TABLE some_entity ADD version BIGINT NOT NULL DEFAULT 0";
+  }
+
+  // Brackets open a character class in T-SQL LIKE
+  @Override
+  public String escapeLike(String literal) {
+    return SqlDialect.super.escapeLike(literal).replace("[", "\\[");
+  }
+
+  @Override
+  public String limitClause(String marker) {
+    return " OFFSET 0 ROWS FETCH NEXT " + marker + " ROWS ONLY";
+  }
+
+  @Override
+  public String updateReturning(boolean checkVersion) {
+    return "UPDATE some_entity SET svalue = COALESCE(" + bindMarker(0, "svalue") + ", svalue), version = version + 1"
+        + " OUTPUT INSERTED.id, INSERTED.svalue, INSERTED.version WHERE id = " + bindMarker(1, "id")
+        + (checkVersion ? " AND version = " + bindMarker(2, "version") : "");
+  }
+
+  @Override
+  public String deleteReturningIds(int count) {
+    return "DELETE FROM some_entity OUTPUT DELETED.id WHERE id IN (" + bindMarkers(count, "id") + ")";
+  }
+
+  // SQL Server caps a VALUES list at 1000 rows and a request at 2100 parameters
+  @Override
+  public int maxRowsPerInsert() {
+    return 1000;
+  }
+
+  // OUTPUT order is unspecified for a multi-row INSERT. MERGE can output a source column, so each
+  // id comes back tagged with the position of the row that produced it.
+  @Override
+  public String bulkInsert(int rows) {
+    return IntStream.range(0, rows)
+        .mapToObj(i -> "(" + bindMarker(i, "svalue" + i) + ", " + i + ")")
+        .collect(Collectors.joining(", ",
+            "MERGE INTO some_entity USING (VALUES ",
+            ") AS src (svalue, ord) ON 1 = 0"
+                + " WHEN NOT MATCHED THEN INSERT (svalue) VALUES (src.svalue)"
+                + " OUTPUT INSERTED.id, src.ord;"));
+  }
+
+  @Override
+  public boolean bulkInsertReturnsOrdinal() {
+    return true;
+  }
+}
@@ -0,0 +1,24 @@
+package com.example.webfluxplay.dao;
+
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+/**
+ * Reactor Context flag that sends the reads of a pipeline to the primary instead of a replica,
+ * e.g. for a client that has just written and must see its own changes.
+ */
+public final class ReadConsistency {
+
+  private static final String PRIMARY = ReadConsistency.class.getName() + ".primary";
+
+  private ReadConsistency() {
+  }
+
+  public static Context primary(Context context) {
+    return context.put(PRIMARY, Boolean.TRUE);
+  }
+
+  static boolean requiresPrimary(ContextView context) {
+    return context.getOrDefault(PRIMARY, Boolean.FALSE);
+  }
+}
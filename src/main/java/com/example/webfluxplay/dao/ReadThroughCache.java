@@ -0,0 +1,99 @@
+package com.example.webfluxplay.dao;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Bounded, reactive read-through cache. Concurrent misses for the same key share a single
+ * in-flight load; empty results are not cached. The load runs in the Reactor Context of the caller
+ * that started it, so its {@link Deadline} bounds the database work, and is cancelled once every
+ * caller waiting for it has gone.
+ */
+public final class ReadThroughCache<K, V> implements MeterBinder {
+
+  private final String name;
+  private final boolean enabled;
+  private final AsyncCache<K, V> cache;
+
+  public ReadThroughCache(String name, CacheProperties properties) {
+    this.name = name;
+    this.enabled = properties.isEnabled();
+    this.cache = Caffeine.newBuilder()
+        .maximumSize(properties.getMaximumSize())
+        .expireAfterWrite(properties.getTtl())
+        .recordStats()
+        .buildAsync();
+  }
+
+  public Mono<V> get(K key, Function<K, Mono<V>> loader) {
+    if (!enabled) {
+      return loader.apply(key);
+    }
+    return Mono.deferContextual(context -> {
+      CompletableFuture<V> future = cache.get(key, (k, executor) -> new SharedLoad<>(loader.apply(k).contextWrite(context)));
+      if (future.isCompletedExceptionally()) {
+        // A failed load is only removed after its own waiters have been told; it is not an answer
+        // for later callers, who may have more time or another context
+        cache.asMap().remove(key, future);
+        return get(key, loader);
+      }
+      if (future.isDone() || !(future instanceof SharedLoad<V> load)) {
+        return Mono.fromFuture(future, true);
+      }
+      if (!load.enter()) {
+        // Its last waiter cancelled it just now; start a fresh load
+        cache.asMap().remove(key, future);
+        return get(key, loader);
+      }
+      // suppressCancel: one caller going away must not cancel the load other callers are waiting on
+      return Mono.fromFuture(load, true).doOnCancel(load::leave);
+    });
+  }
+
+  // A load shared by every caller waiting for the same key; waiters is -1 once it has been abandoned
+  private static final class SharedLoad<V> extends CompletableFuture<V> {
+
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final Disposable subscription;
+
+    SharedLoad(Mono<V> load) {
+      this.subscription = load.subscribe(this::complete, this::completeExceptionally, () -> complete(null));
+    }
+
+    boolean enter() {
+      return waiters.getAndUpdate(n -> n < 0 ? n : n + 1) >= 0;
+    }
+
+    void leave() {
+      if (!isDone() && waiters.updateAndGet(n -> n == 1 ? -1 : n - 1) < 0) {
+        subscription.dispose();
+        completeExceptionally(new CancellationException("Every caller waiting for the load has cancelled"));
+      }
+    }
+  }
+
+  public void invalidate(K key) {
+    cache.synchronous().invalidate(key);
+  }
+
+  public CacheStats stats() {
+    return cache.synchronous().stats();
+  }
+
+  // Publishes cache.gets{result=hit|miss}, cache.evictions and cache.size
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    CaffeineCacheMetrics.monitor(registry, cache, name);
+  }
+}
@@ -0,0 +1,30 @@
+package com.example.webfluxplay.dao;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read replicas. With no pools configured every read goes to the primary.
+ */
+@ConfigurationProperties("someentity.replicas")
+public class ReplicaProperties {
+  private List<ConnectionPoolProperties> pools = new ArrayList<>();
+  private Duration readYourWritesWindow = Duration.ofSeconds(5);
+  private Duration healthCheckInterval = Duration.ofSeconds(10);
+  private Duration healthCheckTimeout = Duration.ofSeconds(2);
+
+  public List<ConnectionPoolProperties> getPools() { return pools; }
+  public void setPools(List<ConnectionPoolProperties> pools) { this.pools = pools; }
+
+  public Duration getReadYourWritesWindow() { return readYourWritesWindow; }
+  public void setReadYourWritesWindow(Duration readYourWritesWindow) { this.readYourWritesWindow = readYourWritesWindow; }
+
+  public Duration getHealthCheckInterval() { return healthCheckInterval; }
+  public void setHealthCheckInterval(Duration healthCheckInterval) { this.healthCheckInterval = healthCheckInterval; }
+
+  public Duration getHealthCheckTimeout() { return healthCheckTimeout; }
+  public void setHealthCheckTimeout(Duration healthCheckTimeout) { this.healthCheckTimeout = healthCheckTimeout; }
+}
@@ -0,0 +1,106 @@
+package com.example.webfluxplay.dao;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import io.r2dbc.spi.ValidationDepth;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Connection factory for reads: round robin over the replica pools that passed their last health
+ * check, falling back to the primary when none did. Replicas start out unhealthy until probed.
+ */
+@Slf4j
+final class ReplicaRouter implements ConnectionFactory {
+
+  private static final class Replica {
+    private final String name;
+    private final ManagedConnectionPool pool;
+    private volatile boolean healthy;
+
+    private Replica(String name, ManagedConnectionPool pool) {
+      this.name = name;
+      this.pool = pool;
+    }
+  }
+
+  private final ConnectionFactory primary;
+  private final List<Replica> replicas = new ArrayList<>();
+  private final AtomicInteger next = new AtomicInteger();
+  private final Duration checkTimeout;
+  private final Disposable healthChecks;
+
+  ReplicaRouter(ConnectionFactory primary, ReplicaProperties properties, MeterRegistry meterRegistry) {
+    this.primary = primary;
+    this.checkTimeout = properties.getHealthCheckTimeout();
+    for (int i = 0; i < properties.getPools().size(); i++) {
+      ConnectionPoolProperties poolProperties = properties.getPools().get(i);
+      if ("default".equals(poolProperties.getName())) {
+        poolProperties.setName("replica-" + i);
+      }
+      Replica replica = new Replica(poolProperties.getName(), new ManagedConnectionPool(poolProperties, meterRegistry));
+      Gauge.builder("someentity.replica.healthy", replica, r -> r.healthy ? 1 : 0)
+          .description("1 while the replica passes its health check and takes reads")
+          .tag("name", replica.name)
+          .register(meterRegistry);
+      replicas.add(replica);
+    }
+    this.healthChecks = replicas.isEmpty() ? Disposables.disposed() : Flux.interval(properties.getHealthCheckInterval())
+        .concatMap(tick -> checkHealth())
+        .subscribe();
+  }
+
+  boolean hasReplicas() {
+    return !replicas.isEmpty();
+  }
+
+  @Override
+  public Mono<Connection> create() {
+    for (int i = 0; i < replicas.size(); i++) {
+      Replica replica = replicas.get(Math.floorMod(next.getAndIncrement(), replicas.size()));
+      if (replica.healthy) {
+        return replica.pool.create();
+      }
+    }
+    return Mono.from(primary.create());
+  }
+
+  @Override
+  public ConnectionFactoryMetadata getMetadata() {
+    return primary.getMetadata();
+  }
+
+  /** Stops the health checks and closes the replica pools. */
+  void close() {
+    healthChecks.dispose();
+    replicas.forEach(replica -> replica.pool.close());
+  }
+
+  /** Validates one pooled connection per replica; never fails, an unreachable replica is just marked down. */
+  Mono<Void> checkHealth() {
+    return Flux.fromIterable(replicas)
+        .flatMap(replica -> Mono.usingWhen(replica.pool.create(),
+                conn -> Mono.from(conn.validate(ValidationDepth.REMOTE)),
+                Connection::close)
+            .timeout(checkTimeout)
+            .onErrorReturn(false)
+            .doOnNext(healthy -> {
+              if (replica.healthy != healthy) {
+                log.info("Replica {} is now {}", replica.name, healthy ? "up" : "down");
+              }
+              replica.healthy = healthy;
+            }))
+        .then();
+  }
+}
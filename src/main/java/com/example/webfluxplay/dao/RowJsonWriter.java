@@ -0,0 +1,207 @@
+package com.example.webfluxplay.dao;
+
+import com.example.webfluxplay.model.SomeEntity;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes some_entity rows as JSON straight from the driver's {@link Row} into buffers from the
+ * response's factory, with no SomeEntity or Jackson databind in between. One generator serves the
+ * whole result; a buffer is handed out each time it holds at least {@code chunkSize} bytes. The
+ * output matches what Jackson produces for SomeEntity, either as one JSON array or as NDJSON lines.
+ * Not thread-safe: one writer per result, fed from the driver's row callback. Only {@link #release()}
+ * may come from another thread, such as a cancelling subscriber's.
+ */
+final class RowJsonWriter {
+
+  private static final JsonFactory JSON = new JsonFactory();
+
+  // A release that arrives while a row is being written is left to the writing thread
+  private static final int IDLE = 0;
+  private static final int BUSY = 1;
+  private static final int RELEASE_PENDING = 2;
+  private static final int RELEASED = 3;
+
+  private final DataBufferFactory bufferFactory;
+  private final int chunkSize;
+  private final boolean ndjson;
+  private final ChunkOutput output = new ChunkOutput();
+  private final JsonGenerator generator;
+  private final AtomicInteger state = new AtomicInteger(IDLE);
+  private long rows;
+  private Long lastId;
+
+  RowJsonWriter(DataBufferFactory bufferFactory, int chunkSize, boolean ndjson) {
+    this.bufferFactory = bufferFactory;
+    this.chunkSize = chunkSize;
+    this.ndjson = ndjson;
+    this.output.current = bufferFactory.allocateBuffer(chunkSize);
+    try {
+      this.generator = JSON.createGenerator(output);
+      generator.setRootValueSeparator(null);
+      if (!ndjson) {
+        generator.writeStartArray();
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** Appends one row; returns a buffer when the current one has filled up. */
+  Optional<DataBuffer> write(Row row, RowMetadata metadata) {
+    return write(row.get("id", Long.class), row.get("svalue", String.class), row.get("version", Long.class));
+  }
+
+  /** Appends an already mapped row, for results merged from several cursors. */
+  Optional<DataBuffer> write(SomeEntity entity) {
+    return write(entity.getId(), entity.getSvalue(), entity.getVersion());
+  }
+
+  private Optional<DataBuffer> write(Long id, String svalue, Long version) {
+    return guarded(() -> {
+      generator.writeStartObject();
+      writeNumberField("id", id);
+      generator.writeStringField("svalue", svalue);
+      writeNumberField("version", version);
+      generator.writeEndObject();
+      if (ndjson) {
+        generator.writeRaw('\n');
+      }
+      // Moves the generator's own small buffer into the current DataBuffer
+      generator.flush();
+      rows++;
+      lastId = id;
+      return output.current.readableByteCount() >= chunkSize ? Optional.of(output.swap()) : Optional.empty();
+    });
+  }
+
+  /** Closes the JSON and hands out whatever is left; nothing if that is zero bytes. */
+  Optional<DataBuffer> finish() {
+    return guarded(() -> {
+      if (!ndjson) {
+        generator.writeEndArray();
+      }
+      generator.flush();
+      DataBuffer last = output.current;
+      output.current = null;
+      if (last.readableByteCount() == 0) {
+        DataBufferUtils.release(last);
+        return Optional.empty();
+      }
+      return Optional.of(last);
+    });
+  }
+
+  /**
+   * Frees the buffer still being filled, for streams that end without {@link #finish()}. Safe to
+   * call from any thread; a row being written at the time is finished and dropped, and later rows
+   * are ignored.
+   */
+  void release() {
+    while (true) {
+      int current = state.get();
+      if (current == IDLE && state.compareAndSet(IDLE, RELEASED)) {
+        freeCurrent();
+        return;
+      }
+      if (current == BUSY && state.compareAndSet(BUSY, RELEASE_PENDING)) {
+        return;
+      }
+      if (current == RELEASE_PENDING || current == RELEASED) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Discard hook for a stream of this writer's output: frees chunks, bare or still wrapped in the
+   * {@link Optional} a write returned, that were produced but never reached the subscriber.
+   */
+  static void discard(Object discarded) {
+    Object chunk = discarded instanceof Optional<?> optional ? optional.orElse(null) : discarded;
+    if (chunk instanceof DataBuffer buffer) {
+      DataBufferUtils.release(buffer);
+    }
+  }
+
+  private interface Step {
+    Optional<DataBuffer> run() throws IOException;
+  }
+
+  // Runs a write unless the writer is released; a release requested meanwhile is carried out here,
+  // together with anything the write produced
+  private Optional<DataBuffer> guarded(Step step) {
+    if (!state.compareAndSet(IDLE, BUSY)) {
+      return Optional.empty();
+    }
+    Optional<DataBuffer> produced = Optional.empty();
+    try {
+      produced = step.run();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      if (!state.compareAndSet(BUSY, IDLE)) {
+        state.set(RELEASED);
+        produced.ifPresent(DataBufferUtils::release);
+        produced = Optional.empty();
+        freeCurrent();
+      }
+    }
+    return produced;
+  }
+
+  private void freeCurrent() {
+    if (output.current != null) {
+      DataBufferUtils.release(output.current);
+      output.current = null;
+    }
+  }
+
+  long rows() {
+    return rows;
+  }
+
+  Long lastId() {
+    return lastId;
+  }
+
+  private void writeNumberField(String name, Long value) throws IOException {
+    if (value == null) {
+      generator.writeNullField(name);
+    } else {
+      generator.writeNumberField(name, value);
+    }
+  }
+
+  // Lets the single generator write into whichever buffer is current
+  private final class ChunkOutput extends OutputStream {
+    private DataBuffer current;
+
+    DataBuffer swap() {
+      DataBuffer full = current;
+      current = bufferFactory.allocateBuffer(chunkSize);
+      return full;
+    }
+
+    @Override
+    public void write(int b) {
+      current.write((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      current.write(b, off, len);
+    }
+  }
+}
@@ -0,0 +1,58 @@
+package com.example.webfluxplay.dao;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * 64-bit ids that name the shard holding the row, so any id routes without a lookup. From the top:
+ * milliseconds since {@link #EPOCH} (41 bits), node (8 bits), shard (6 bits), sequence within the
+ * millisecond (8 bits). Ids grow with time, so merging shards by id roughly follows insertion order.
+ * More than 256 ids per shard in one millisecond borrow from the next one instead of waiting, and a
+ * clock that steps back never produces an id twice.
+ */
+final class ShardedIdGenerator {
+
+  static final long EPOCH = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+  static final int MAX_SHARDS = 64;
+  static final int MAX_NODES = 256;
+
+  private static final int SEQUENCE_BITS = 8;
+  private static final int SHARD_BITS = 6;
+  private static final int NODE_BITS = 8;
+  private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+  private final long node;
+  private final LongSupplier clock;
+  // Per shard: the last (millis << SEQUENCE_BITS | sequence) handed out
+  private final AtomicLongArray last;
+
+  ShardedIdGenerator(int node, int shards) {
+    this(node, shards, System::currentTimeMillis);
+  }
+
+  ShardedIdGenerator(int node, int shards, LongSupplier clock) {
+    if (node < 0 || node >= MAX_NODES) {
+      throw new IllegalArgumentException("Node id must be between 0 and " + (MAX_NODES - 1) + ": " + node);
+    }
+    if (shards < 1 || shards > MAX_SHARDS) {
+      throw new IllegalArgumentException("Shard count must be between 1 and " + MAX_SHARDS + ": " + shards);
+    }
+    this.node = node;
+    this.clock = clock;
+    this.last = new AtomicLongArray(shards);
+  }
+
+  long next(int shard) {
+    long now = (clock.getAsLong() - EPOCH) << SEQUENCE_BITS;
+    long tick = last.updateAndGet(shard, previous -> Math.max(previous + 1, now));
+    return (tick >>> SEQUENCE_BITS) << (NODE_BITS + SHARD_BITS + SEQUENCE_BITS)
+        | node << (SHARD_BITS + SEQUENCE_BITS)
+        | (long) shard << SEQUENCE_BITS
+        | tick & SEQUENCE_MASK;
+  }
+
+  static int shardOf(long id) {
+    return (int) (id >>> SEQUENCE_BITS) & (MAX_SHARDS - 1);
+  }
+}
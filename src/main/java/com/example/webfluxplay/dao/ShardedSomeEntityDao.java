@@ -0,0 +1,322 @@
+package com.example.webfluxplay.dao;
+
+import com.example.webfluxplay.model.ChangeEvent;
+import com.example.webfluxplay.model.ItemResult;
+import com.example.webfluxplay.model.SomeEntity;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * {@link SomeEntityRepository} over several databases that each hold a slice of some_entity. Every
+ * shard is a plain {@link SomeEntityDao}; this class only decides which of them an id, a new row or
+ * a batch goes to. Ids come from {@link ShardedIdGenerator} and name their shard, so point reads and
+ * writes touch one database. Lists, pages and streams ask every shard and merge the answers in id order.
+ * Replaces {@link SomeEntityDao} when {@code someentity.sharding.enabled} is set.
+ */
+@Service
+@ConditionalOnProperty(name = "someentity.sharding.enabled", havingValue = "true")
+public final class ShardedSomeEntityDao implements SomeEntityRepository, DisposableBean {
+
+  private static final Comparator<SomeEntity> BY_ID = Comparator.comparing(SomeEntity::getId);
+  // The prefix search order; assumes the databases compare svalue as String does (binary collation)
+  private static final Comparator<SomeEntity> BY_SVALUE_ID =
+      Comparator.comparing(SomeEntity::getSvalue).thenComparing(SomeEntity::getId);
+  // Rows each shard cursor reads ahead when a whole table is merged
+  private static final int MERGE_PREFETCH = 256;
+  private static final int UNKNOWN = -1;
+
+  private final List<SomeEntityDao> shards;
+  private final ShardingProperties.ShardKey shardKey;
+  private final AtomicInteger nextShard = new AtomicInteger();
+  private final ChangeFeed changes;
+
+  public ShardedSomeEntityDao(SqlDialect dialect,
+                              ShardingProperties shardingProperties,
+                              CacheProperties cacheProperties,
+                              BatchingProperties batchingProperties,
+                              BulkInsertProperties bulkProperties,
+                              ChangeStreamProperties changeStreamProperties,
+                              MeterRegistry meterRegistry) {
+    if (shardingProperties.getShards().isEmpty()) {
+      throw new IllegalStateException("someentity.sharding.enabled is set but no someentity.sharding.shards are configured");
+    }
+    this.shardKey = shardingProperties.getShardKey();
+    this.changes = new ChangeFeed(changeStreamProperties, meterRegistry);
+    // One statement set, cache and change feed for all shards: ids are unique across them
+    SomeEntityStatements sql = new SomeEntityStatements(dialect, meterRegistry);
+    ReadThroughCache<Long, SomeEntity> cache = SomeEntityDao.cache(cacheProperties, meterRegistry);
+    ShardedIdGenerator ids = new ShardedIdGenerator(shardingProperties.getNodeId(), shardingProperties.getShards().size());
+    List<SomeEntityDao> shards = new ArrayList<>();
+    for (int i = 0; i < shardingProperties.getShards().size(); i++) {
+      ConnectionPoolProperties poolProperties = shardingProperties.getShards().get(i);
+      if ("default".equals(poolProperties.getName())) {
+        poolProperties.setName("shard-" + i);
+      }
+      IdAllocator allocator = IdAllocator.timeOrdered(ids, i);
+      shards.add(new SomeEntityDao(dialect, sql, poolProperties, cache, batchingProperties, bulkProperties,
+          changes, new ReplicaProperties(), dao -> allocator, meterRegistry));
+    }
+    this.shards = List.copyOf(shards);
+  }
+
+  @Override
+  public Flux<Long> createTable() {
+    return Flux.fromIterable(shards).flatMap(SomeEntityDao::createTable);
+  }
+
+  // -----------------------------------------------------------------------
+  // Startup
+  // -----------------------------------------------------------------------
+
+  @Override
+  public Mono<Void> initialize() {
+    return Flux.fromIterable(shards).flatMap(SomeEntityDao::initialize).then();
+  }
+
+  @Override
+  public void destroy() {
+    shards.forEach(SomeEntityDao::destroy);
+    changes.dispose();
+  }
+
+  // -----------------------------------------------------------------------
+  // Routing
+  // -----------------------------------------------------------------------
+
+  // An id naming a shard that is not configured cannot be stored here: its row does not exist.
+  // Such ids come from clients, so they are answered as misses rather than routed by modulo to a
+  // shard that might hold an unrelated row.
+  private int shardOf(long id) {
+    int shard = ShardedIdGenerator.shardOf(id);
+    return shard < shards.size() ? shard : UNKNOWN;
+  }
+
+  private Mono<SomeEntityDao> shard(long id) {
+    int shard = shardOf(id);
+    return shard == UNKNOWN ? Mono.empty() : Mono.just(shards.get(shard));
+  }
+
+  // The shard a new row goes to; its allocator then gives the row an id naming that shard
+  private int shardFor(SomeEntity entity) {
+    return shardKey == ShardingProperties.ShardKey.SVALUE && entity.getSvalue() != null
+        ? Math.floorMod(entity.getSvalue().hashCode(), shards.size())
+        : Math.floorMod(nextShard.getAndIncrement(), shards.size());
+  }
+
+  /**
+   * Sends every input to its shard's {@code operation} and puts the answers back in input order.
+   * Relies on {@code operation} answering once per input, in order, as the batch operations do.
+   * Inputs whose shard is {@link #UNKNOWN} are answered by {@code unknown} without a database call.
+   */
+  private <T, R> Flux<R> routed(Flux<T> inputs, ToIntFunction<T> shardOf,
+                                BiFunction<SomeEntityDao, Flux<T>, Flux<R>> operation, Function<T, R> unknown) {
+    return Flux.defer(() -> {
+      Queue<Integer> order = new ConcurrentLinkedQueue<>();
+      // One queue per shard plus a last one for the unknown-shard answers
+      List<Queue<R>> answers = new ArrayList<>();
+      for (int i = 0; i <= shards.size(); i++) {
+        answers.add(new ArrayDeque<>());
+      }
+      return inputs
+          .map(input -> {
+            int shard = shardOf.applyAsInt(input);
+            int slot = shard == UNKNOWN ? shards.size() : shard;
+            order.add(slot);
+            return Tuples.of(slot, input);
+          })
+          .groupBy(Tuple2::getT1)
+          .flatMap(slice -> (slice.key() == shards.size()
+              ? slice.map(Tuple2::getT2).map(unknown)
+              : operation.apply(shards.get(slice.key()), slice.map(Tuple2::getT2)))
+              .map(answer -> Tuples.of(slice.key(), answer)), shards.size() + 1)
+          // flatMap serializes its output, so the queues below are only touched by one thread at a time
+          .concatMapIterable(answer -> {
+            answers.get(answer.getT1()).add(answer.getT2());
+            List<R> ready = new ArrayList<>();
+            Integer next;
+            while ((next = order.peek()) != null && !answers.get(next).isEmpty()) {
+              order.poll();
+              ready.add(answers.get(next).poll());
+            }
+            return ready;
+          });
+    });
+  }
+
+  // Each shard answers in {@code order}; merging by it keeps the global order, and a downstream
+  // take() cancels the shard cursors it no longer needs.
+  @SuppressWarnings("unchecked")
+  private Flux<SomeEntity> merged(int prefetch, Comparator<SomeEntity> order, Function<SomeEntityDao, Flux<SomeEntity>> query) {
+    return Flux.mergeComparing(prefetch, order, shards.stream().map(query).toArray(Flux[]::new));
+  }
+
+  // Every shard may hold the whole page, so each is asked for {@code limit} rows
+  private Flux<SomeEntity> page(int limit, Comparator<SomeEntity> order, Function<SomeEntityDao, Flux<SomeEntity>> query) {
+    return limit <= 0 ? Flux.empty() : merged(limit, order, query).take(limit);
+  }
+
+  // -----------------------------------------------------------------------
+  // Inserts
+  // -----------------------------------------------------------------------
+
+  @Override
+  public Mono<SomeEntity> save(SomeEntity entity) {
+    return Mono.defer(() -> shards.get(shardFor(entity)).save(entity));
+  }
+
+  // Every shard's slice is one saveAll, run in parallel; the entities get their ids in place
+  @Override
+  public Flux<SomeEntity> saveAll(List<SomeEntity> entities) {
+    if (entities.isEmpty()) return Flux.empty();
+    return Flux.defer(() -> {
+      Map<Integer, List<SomeEntity>> slices = entities.stream()
+          .collect(Collectors.groupingBy(this::shardFor, LinkedHashMap::new, Collectors.toList()));
+      return Flux.fromIterable(slices.entrySet())
+          .flatMap(slice -> shards.get(slice.getKey()).saveAll(slice.getValue()))
+          .thenMany(Flux.fromIterable(entities));
+    });
+  }
+
+  // Each shard batches, sizes and throttles its own part of the stream
+  @Override
+  public Flux<SomeEntity> bulkInsert(Flux<SomeEntity> entities) {
+    return routed(entities, this::shardFor, SomeEntityDao::bulkInsert, entity -> {
+      throw new IllegalStateException("New rows are only routed to configured shards");
+    });
+  }
+
+  // -----------------------------------------------------------------------
+  // Updates
+  // -----------------------------------------------------------------------
+
+  @Override
+  public Mono<SomeEntity> update(SomeEntity payload) {
+    return shard(payload.getId())
+        .switchIfEmpty(Mono.error(new IllegalArgumentException("Entity not found")))
+        .flatMap(shard -> shard.update(payload));
+  }
+
+  @Override
+  public Mono<SomeEntity> update(Long id, UnaryOperator<SomeEntity> changes) {
+    return shard(id)
+        .switchIfEmpty(Mono.error(new IllegalArgumentException("Entity not found")))
+        .flatMap(shard -> shard.update(id, changes));
+  }
+
+  @Override
+  public Flux<ItemResult> updateAll(Flux<SomeEntity> payloads) {
+    return routed(payloads, payload -> shardOf(payload.getId()), SomeEntityDao::updateAll,
+        payload -> ItemResult.of(payload.getId(), ItemResult.Status.NOT_FOUND));
+  }
+
+  // -----------------------------------------------------------------------
+  // Deletes
+  // -----------------------------------------------------------------------
+
+  @Override
+  public Mono<Void> deleteById(Long id) {
+    return shard(id).flatMap(shard -> shard.deleteById(id));
+  }
+
+  @Override
+  public Flux<ItemResult> deleteAllById(Flux<Long> ids) {
+    return routed(ids, this::shardOf, SomeEntityDao::deleteAllById,
+        id -> ItemResult.of(id, ItemResult.Status.NOT_FOUND));
+  }
+
+  // -----------------------------------------------------------------------
+  // Reads
+  // -----------------------------------------------------------------------
+
+  @Override
+  public Mono<SomeEntity> findById(Long id) {
+    return shard(id).flatMap(shard -> shard.findById(id));
+  }
+
+  @Override
+  public Flux<SomeEntity> findAll() {
+    return streamAll(MERGE_PREFETCH);
+  }
+
+  @Override
+  public Flux<SomeEntity> findPage(long afterId, int limit) {
+    return page(limit, BY_ID, shard -> shard.findPage(afterId, limit));
+  }
+
+  @Override
+  public Flux<SomeEntity> findBySvalue(String svalue, long afterId, int limit) {
+    return page(limit, BY_ID, shard -> shard.findBySvalue(svalue, afterId, limit));
+  }
+
+  @Override
+  public Flux<SomeEntity> findBySvaluePrefix(String prefix, String afterSvalue, long afterId, int limit) {
+    return page(limit, BY_SVALUE_ID, shard -> shard.findBySvaluePrefix(prefix, afterSvalue, afterId, limit));
+  }
+
+  @Override
+  public Flux<SomeEntity> streamAll(int fetchSize) {
+    return merged(fetchSize, BY_ID, shard -> shard.streamAll(fetchSize));
+  }
+
+  // -----------------------------------------------------------------------
+  // JSON encoding: rows from several cursors are merged as entities, then written
+  // -----------------------------------------------------------------------
+
+  @Override
+  public Flux<DataBuffer> streamAllJson(int fetchSize, DataBufferFactory bufferFactory, int chunkSize) {
+    return Flux.defer(() -> encode(new RowJsonWriter(bufferFactory, chunkSize, true), streamAll(fetchSize)));
+  }
+
+  @Override
+  public Mono<JsonPage> findPageJson(long afterId, int limit, DataBufferFactory bufferFactory, int chunkSize) {
+    return Mono.defer(() -> {
+      RowJsonWriter writer = new RowJsonWriter(bufferFactory, chunkSize, false);
+      return encode(writer, findPage(afterId, limit))
+          .collectList()
+          .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+          .map(chunks -> new JsonPage(chunks, writer.rows(), writer.lastId()));
+    });
+  }
+
+  private Flux<DataBuffer> encode(RowJsonWriter writer, Flux<SomeEntity> rows) {
+    return rows.map(writer::write)
+        .<DataBuffer>handle((chunk, sink) -> chunk.ifPresent(sink::next))
+        .concatWith(Mono.fromSupplier(writer::finish).flatMap(Mono::justOrEmpty))
+        .doOnDiscard(Object.class, RowJsonWriter::discard)
+        .doFinally(signal -> writer.release());
+  }
+
+  // -----------------------------------------------------------------------
+  // Change notification
+  // -----------------------------------------------------------------------
+
+  // Every shard publishes to the one feed, so sequence numbers are global
+  @Override
+  public Flux<ChangeEvent> changes(long afterSequence) {
+    return changes.events(afterSequence);
+  }
+}
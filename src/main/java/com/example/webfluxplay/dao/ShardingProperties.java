@@ -0,0 +1,40 @@
+package com.example.webfluxplay.dao;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hash-sharded storage across several databases. When enabled, {@code shards} replaces the single
+ * datasource and ids are assigned by the application.
+ */
+@ConfigurationProperties("someentity.sharding")
+public class ShardingProperties {
+
+  /** What picks the shard of a new row. Either way the shard is encoded in the id that row gets. */
+  public enum ShardKey {
+    /** Spread new rows evenly over the shards. */
+    ID,
+    /** Hash of svalue, so rows created with equal svalues share a shard. */
+    SVALUE
+  }
+
+  private boolean enabled = false;
+  private List<ConnectionPoolProperties> shards = new ArrayList<>();
+  private ShardKey shardKey = ShardKey.ID;
+  // Distinguishes application instances in generated ids; must be unique per instance
+  private int nodeId = 0;
+
+  public boolean isEnabled() { return enabled; }
+  public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+  public List<ConnectionPoolProperties> getShards() { return shards; }
+  public void setShards(List<ConnectionPoolProperties> shards) { this.shards = shards; }
+
+  public ShardKey getShardKey() { return shardKey; }
+  public void setShardKey(ShardKey shardKey) { this.shardKey = shardKey; }
+
+  public int getNodeId() { return nodeId; }
+  public void setNodeId(int nodeId) { this.nodeId = nodeId; }
+}
@@ -0,0 +1,96 @@
+package com.example.webfluxplay.dao;
+
+import com.example.webfluxplay.model.ChangeEvent;
+import com.example.webfluxplay.model.ItemResult;
+import com.example.webfluxplay.model.SomeEntity;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Storage operations for {@link SomeEntity}, independent of the backing database.
+ */
+public interface SomeEntityRepository {
+
+  Flux<Long> createTable();
+
+  /**
+   * Startup phase: creates or migrates and then verifies the schema, opens the pool's initial
+   * connections and runs the hot statements once. Completes when requests can be served at full speed.
+   */
+  Mono<Void> initialize();
+
+  Mono<SomeEntity> save(SomeEntity entity);
+
+  Flux<SomeEntity> saveAll(List<SomeEntity> entities);
+
+  /**
+   * High-volume insert of a stream of entities using multi-row statements. Output is in input
+   * order and every entity carries the id generated for its own row.
+   */
+  Flux<SomeEntity> bulkInsert(Flux<SomeEntity> entities);
+
+  /**
+   * Merges the non-null fields of {@code payload} into the stored row and bumps its version. If the
+   * payload carries a version the update only applies at that version, otherwise it fails with
+   * {@link VersionConflictException}. Errors with {@link IllegalArgumentException} if the id does not exist.
+   */
+  Mono<SomeEntity> update(SomeEntity payload);
+
+  /**
+   * Applies {@code changes} to the stored row, for edits that need the current state in Java. The
+   * write is optimistic, so {@code changes} may run again against a fresher copy of the row.
+   */
+  Mono<SomeEntity> update(Long id, UnaryOperator<SomeEntity> changes);
+
+  Mono<SomeEntity> findById(Long id);
+
+  Flux<SomeEntity> findAll();
+
+  /** Keyset page: up to {@code limit} rows with id greater than {@code afterId}, in id order. */
+  Flux<SomeEntity> findPage(long afterId, int limit);
+
+  /** {@link #findPage(long, int)} restricted to rows whose svalue equals {@code svalue}. */
+  Flux<SomeEntity> findBySvalue(String svalue, long afterId, int limit);
+
+  /**
+   * Keyset page of rows whose svalue starts with {@code prefix}, taken literally, in (svalue, id)
+   * order: up to {@code limit} rows after ({@code afterSvalue}, {@code afterId}), or from the first
+   * match when {@code afterSvalue} is null.
+   */
+  Flux<SomeEntity> findBySvaluePrefix(String prefix, String afterSvalue, long afterId, int limit);
+
+  /** The whole table in id order over a single cursor, fetching {@code fetchSize} rows at a time. */
+  Flux<SomeEntity> streamAll(int fetchSize);
+
+  /**
+   * {@link #streamAll(int)} as NDJSON, encoded straight from the driver's rows into buffers of
+   * about {@code chunkSize} bytes from {@code bufferFactory}.
+   */
+  Flux<DataBuffer> streamAllJson(int fetchSize, DataBufferFactory bufferFactory, int chunkSize);
+
+  /** {@link #findPage(long, int)} encoded straight from the driver's rows as one JSON array. */
+  Mono<JsonPage> findPageJson(long afterId, int limit, DataBufferFactory bufferFactory, int chunkSize);
+
+  Mono<Void> deleteById(Long id);
+
+  /**
+   * Partial updates for a stream of payloads, applied with batched statements in chunks of the bulk
+   * batch size. Emits one result per payload, in input order; versioned payloads are compare-and-set
+   * as in {@link #update(SomeEntity)}.
+   */
+  Flux<ItemResult> updateAll(Flux<SomeEntity> payloads);
+
+  /** Deletes a stream of ids with one IN-list statement per chunk; one result per id, in input order. */
+  Flux<ItemResult> deleteAllById(Flux<Long> ids);
+
+  /**
+   * Committed creates, updates and deletes as they happen. A non-negative {@code afterSequence}
+   * first replays the retained events after that sequence number.
+   */
+  Flux<ChangeEvent> changes(long afterSequence);
+}
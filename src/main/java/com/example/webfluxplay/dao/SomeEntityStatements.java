@@ -0,0 +1,83 @@
+package com.example.webfluxplay.dao;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * The some_entity statements rendered once from the dialect, shared by the single-database and the
+ * sharded repository. Fixed statements are {@link StatementRegistry.Entry entries}; statements sized
+ * by a row or id count are built per count on first use.
+ */
+final class SomeEntityStatements {
+
+  static final String SELECT_ALL = "SELECT id, svalue, version FROM some_entity";
+  static final String SELECT_ALL_BY_ID = SELECT_ALL + " ORDER BY id";
+  // Fails unless every column the mapper reads exists
+  static final String VERIFY_SCHEMA = "SELECT id, svalue, version FROM some_entity WHERE 1 = 0";
+
+  private final SqlDialect dialect;
+  private final StatementRegistry registry;
+
+  final StatementRegistry.Entry selectById;
+  final StatementRegistry.Entry selectPage;
+  final StatementRegistry.Entry selectBySvalue;
+  final StatementRegistry.Entry selectBySvaluePrefix;
+  final StatementRegistry.Entry insert;
+  final StatementRegistry.Entry compareAndSet;
+  final StatementRegistry.Entry updateReturning;
+  final StatementRegistry.Entry updateIfVersion;
+  final StatementRegistry.Entry deleteById;
+
+  SomeEntityStatements(SqlDialect dialect, MeterRegistry meterRegistry) {
+    this.dialect = dialect;
+    this.registry = new StatementRegistry(meterRegistry);
+    this.selectById = registry.register("selectById",
+        "SELECT id, svalue, version FROM some_entity WHERE id = " + dialect.bindMarker(0, "id"));
+    this.selectPage = registry.register("selectPage",
+        "SELECT id, svalue, version FROM some_entity WHERE id > " + dialect.bindMarker(0, "afterId")
+            + " ORDER BY id" + dialect.limitClause(dialect.bindMarker(1, "limit")));
+    // Both filters walk the (svalue, id) index in its own order, so each page reads only its rows:
+    // an exact svalue is ordered by id, a prefix range by svalue then id with a two-column cursor
+    this.selectBySvalue = registry.register("selectBySvalue",
+        "SELECT id, svalue, version FROM some_entity WHERE svalue = " + dialect.bindMarker(0, "svalue")
+            + " AND id > " + dialect.bindMarker(1, "afterId")
+            + " ORDER BY id" + dialect.limitClause(dialect.bindMarker(2, "limit")));
+    this.selectBySvaluePrefix = registry.register("selectBySvaluePrefix",
+        "SELECT id, svalue, version FROM some_entity WHERE svalue LIKE " + dialect.bindMarker(0, "pattern")
+            + " ESCAPE '\\' AND svalue >= " + dialect.bindMarker(1, "fromSvalue")
+            + " AND (svalue > " + dialect.bindMarker(2, "afterSvalue")
+            + " OR id > " + dialect.bindMarker(3, "afterId") + ")"
+            + " ORDER BY svalue, id" + dialect.limitClause(dialect.bindMarker(4, "limit")));
+    this.insert = registry.register("insert",
+        "INSERT INTO some_entity (svalue) VALUES (" + dialect.bindMarker(0, "svalue") + ")");
+    this.compareAndSet = registry.register("compareAndSet",
+        "UPDATE some_entity SET svalue = " + dialect.bindMarker(0, "svalue")
+            + ", version = version + 1 WHERE id = " + dialect.bindMarker(1, "id")
+            + " AND version = " + dialect.bindMarker(2, "version"));
+    this.updateReturning = registry.register("updateReturning", dialect.updateReturning(false));
+    this.updateIfVersion = registry.register("updateIfVersion", dialect.updateReturning(true));
+    this.deleteById = registry.register("deleteById",
+        "DELETE FROM some_entity WHERE id = " + dialect.bindMarker(0, "id"));
+  }
+
+  String selectByIds(int count) {
+    return registry.get("selectByIds", count,
+        n -> "SELECT id, svalue, version FROM some_entity WHERE id IN (" + dialect.bindMarkers(n, "id") + ")");
+  }
+
+  String existingIds(int count) {
+    return registry.get("existingIds", count,
+        n -> "SELECT id FROM some_entity WHERE id IN (" + dialect.bindMarkers(n, "id") + ")");
+  }
+
+  String deleteReturningIds(int count) {
+    return registry.get("deleteReturningIds", count, dialect::deleteReturningIds);
+  }
+
+  String bulkInsert(int rows) {
+    return registry.get("bulkInsert", rows, dialect::bulkInsert);
+  }
+
+  String insertWithIds(int rows) {
+    return registry.get("insertWithIds", rows, dialect::multiRowInsertWithIds);
+  }
+}
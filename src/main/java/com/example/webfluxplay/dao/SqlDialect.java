@@ -0,0 +1,118 @@
+package com.example.webfluxplay.dao;
+
+import io.r2dbc.spi.Statement;
+
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * The vendor-specific pieces of SQL used by {@link SomeEntityDao}. Everything else is shared, so an
+ * optimization made in the DAO applies to every backend.
+ */
+public interface SqlDialect {
+
+  String name();
+
+  /**
+   * Placeholder for the parameter at {@code index} (zero based). {@code name} must be unique within
+   * the statement; dialects with positional markers ignore it.
+   */
+  String bindMarker(int index, String name);
+
+  /** DDL that creates the some_entity table and its indexes where missing; never touches existing ones. */
+  default String createTable() {
+    return createTable(true);
+  }
+
+  /**
+   * {@link #createTable()} with the id either generated by the database or, when {@code generatedIds}
+   * is false, a plain BIGINT key the application assigns (sharding).
+   */
+  String createTable(boolean generatedIds);
+
+  /** DDL that creates the sequence behind hi/lo id blocks where missing. */
+  String createIdSequence();
+
+  /** Query for the next hi/lo block number: one row, one BIGINT column. */
+  default String nextIdBlock() {
+    return "SELECT NEXT VALUE FOR some_entity_hilo";
+  }
+
+  /** Brings a table created by an earlier release up to the current columns; a no-op when current. */
+  String migrateSchema();
+
+  /** Escapes LIKE wildcards in {@code literal}, using {@code \} as the escape character. */
+  default String escapeLike(String literal) {
+    return literal.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+  }
+
+  /** Clause appended after ORDER BY that caps the row count at the given bind marker. */
+  String limitClause(String marker);
+
+  /**
+   * Single-statement partial update that bumps the version and returns the row as written: the first
+   * parameter is the new svalue (null keeps the stored one), the second the id and, when
+   * {@code checkVersion} is set, the third the expected version. No row back means no such id or a
+   * version mismatch.
+   */
+  String updateReturning(boolean checkVersion);
+
+  /**
+   * {@code DELETE ... WHERE id IN (..)} for {@code count} ids that returns the id of every row it
+   * removed, so callers can tell which requested ids did not exist.
+   */
+  String deleteReturningIds(int count);
+
+  /**
+   * Largest number of rows a single multi-row VALUES insert may carry; also caps the IN lists of
+   * set-based statements.
+   */
+  int maxRowsPerInsert();
+
+  /** {@code count} comma-separated markers named {@code name0, name1, ...}, for IN lists. */
+  default String bindMarkers(int count, String name) {
+    return IntStream.range(0, count)
+        .mapToObj(i -> bindMarker(i, name + i))
+        .collect(Collectors.joining(", "));
+  }
+
+  /** Asks the driver to hand back the generated id of every inserted row. */
+  default Statement returnGeneratedId(Statement statement) {
+    return statement.returnGeneratedValues("id");
+  }
+
+  /** {@code INSERT ... VALUES (..), (..)} for {@code rows} rows, one svalue parameter per row. */
+  default String multiRowInsert(int rows) {
+    return IntStream.range(0, rows)
+        .mapToObj(i -> "(" + bindMarker(i, "svalue" + i) + ")")
+        .collect(Collectors.joining(", ", "INSERT INTO some_entity (svalue) VALUES ", ""));
+  }
+
+  /** {@code INSERT ... VALUES (..), (..)} with application-assigned ids: id then svalue for each row. */
+  default String multiRowInsertWithIds(int rows) {
+    return IntStream.range(0, rows)
+        .mapToObj(i -> "(" + bindMarker(2 * i, "id" + i) + ", " + bindMarker(2 * i + 1, "svalue" + i) + ")")
+        .collect(Collectors.joining(", ", "INSERT INTO some_entity (id, svalue) VALUES ", ""));
+  }
+
+  /**
+   * Multi-row insert that returns the generated id of every row. When {@link #bulkInsertReturnsOrdinal()}
+   * is true each result row also carries an {@code ord} column with the zero-based position of its
+   * source row; otherwise ids come back in VALUES order and the statement asks for generated keys.
+   */
+  default String bulkInsert(int rows) {
+    return multiRowInsert(rows);
+  }
+
+  default boolean bulkInsertReturnsOrdinal() {
+    return false;
+  }
+
+  static SqlDialect of(String name) {
+    return switch (name.toLowerCase()) {
+      case "h2" -> new H2Dialect();
+      case "mssql" -> new MsSqlDialect();
+      default -> throw new IllegalArgumentException("Unknown SQL dialect: " + name);
+    };
+  }
+}
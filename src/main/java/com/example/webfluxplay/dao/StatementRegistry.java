@@ -0,0 +1,101 @@
+package com.example.webfluxplay.dao;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.IntFunction;
+
+/**
+ * The SQL text of every SomeEntity statement, built once and handed out as the same string.
+ * R2DBC has no explicit prepare; the drivers cache parsed/prepared statements per connection keyed
+ * by SQL text (H2's session query cache, r2dbc-mssql's prepared statement cache), so a stable and
+ * small set of statement texts is what makes those caches hit. IN lists are padded up to a bucket
+ * size for the same reason. The registry only sees its own lookups: whether the driver actually
+ * reused a prepared statement is not visible through R2DBC, so its meters count texts built and
+ * handed out rather than driver cache hits.
+ */
+final class StatementRegistry {
+
+  private record Shape(String name, int arity) {}
+
+  /** A statement's SQL text; every {@link #get()} counts as a use. */
+  static final class Entry {
+    private final String sql;
+    private final Counter uses;
+
+    private Entry(String sql, Counter uses) {
+      this.sql = sql;
+      this.uses = uses;
+    }
+
+    String get() {
+      uses.increment();
+      return sql;
+    }
+  }
+
+  private final MeterRegistry meterRegistry;
+  private final ConcurrentMap<Shape, Entry> statements = new ConcurrentHashMap<>();
+
+  StatementRegistry(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+    Gauge.builder("someentity.statements.cached", statements, Map::size)
+        .description("Distinct statement texts handed to the driver")
+        .register(meterRegistry);
+  }
+
+  /** Registers a fixed statement. */
+  Entry register(String name, String sql) {
+    Entry entry = new Entry(sql, uses(name));
+    statements.put(new Shape(name, 0), entry);
+    return entry;
+  }
+
+  /** SQL for a statement whose text depends on a row or parameter count, built on first use. */
+  String get(String name, int arity, IntFunction<String> builder) {
+    Entry entry = statements.get(new Shape(name, arity));
+    if (entry == null) {
+      entry = statements.computeIfAbsent(new Shape(name, arity), shape -> {
+        Counter.builder("someentity.statements.built")
+            .description("Statement texts built for a new row or parameter count")
+            .tag("statement", name)
+            .register(meterRegistry)
+            .increment();
+        return new Entry(builder.apply(arity), uses(name));
+      });
+    }
+    return entry.get();
+  }
+
+  private Counter uses(String name) {
+    return Counter.builder("someentity.statements.uses")
+        .description("Times a statement's text was handed to the driver")
+        .tag("statement", name)
+        .register(meterRegistry);
+  }
+
+  // -----------------------------------------------------------------------
+  // IN lists
+  // -----------------------------------------------------------------------
+
+  /** Rounds an IN-list length up to a power of two, capped at {@code max}. */
+  static int bucket(int size, int max) {
+    int bucket = size <= 1 ? 1 : Integer.highestOneBit(size - 1) << 1;
+    return Math.min(bucket, max);
+  }
+
+  /** The ids as bind values, repeating the last one up to the bucket size; duplicates match nothing new. */
+  static Object[] padded(List<Long> ids, int max) {
+    int size = Math.max(ids.size(), bucket(ids.size(), max));
+    Object[] args = new Object[size];
+    for (int i = 0; i < size; i++) {
+      args[i] = ids.get(Math.min(i, ids.size() - 1));
+    }
+    return args;
+  }
+}
@@ -0,0 +1,13 @@
+package com.example.webfluxplay.dao;
+
+/**
+ * A conditional update found the row at a different version than the caller expected.
+ */
+public class VersionConflictException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  public VersionConflictException(Long id) {
+    super("Entity " + id + " was modified concurrently");
+  }
+}
@@ -0,0 +1,38 @@
+package com.example.webfluxplay.model;
+
+/**
+ * One committed mutation of a {@link SomeEntity}, numbered in publication order. {@code entity} is
+ * the row as written for creates and updates and absent for deletes. A {@link Type#RESET} event
+ * means earlier events are no longer available and the client should re-read the collection.
+ */
+public class ChangeEvent {
+
+  public enum Type { CREATED, UPDATED, DELETED, RESET }
+
+  private long sequence;
+  private Type type;
+  private Long id;
+  private SomeEntity entity;
+
+  public ChangeEvent() {
+  }
+
+  public ChangeEvent(long sequence, Type type, Long id, SomeEntity entity) {
+    this.sequence = sequence;
+    this.type = type;
+    this.id = id;
+    this.entity = entity;
+  }
+
+  public long getSequence() { return sequence; }
+  public void setSequence(long sequence) { this.sequence = sequence; }
+
+  public Type getType() { return type; }
+  public void setType(Type type) { this.type = type; }
+
+  public Long getId() { return id; }
+  public void setId(Long id) { this.id = id; }
+
+  public SomeEntity getEntity() { return entity; }
+  public void setEntity(SomeEntity entity) { this.entity = entity; }
+}
@@ -0,0 +1,40 @@
+package com.example.webfluxplay.model;
+
+/**
+ * Outcome for one element of a batch update or delete. {@code entity} is the row as written for
+ * {@link Status#UPDATED} and absent otherwise.
+ */
+public class ItemResult {
+
+  public enum Status { UPDATED, DELETED, NOT_FOUND, CONFLICT }
+
+  private Long id;
+  private Status status;
+  private SomeEntity entity;
+
+  public ItemResult() {
+  }
+
+  private ItemResult(Long id, Status status, SomeEntity entity) {
+    this.id = id;
+    this.status = status;
+    this.entity = entity;
+  }
+
+  public static ItemResult updated(SomeEntity entity) {
+    return new ItemResult(entity.getId(), Status.UPDATED, entity);
+  }
+
+  public static ItemResult of(Long id, Status status) {
+    return new ItemResult(id, status, null);
+  }
+
+  public Long getId() { return id; }
+  public void setId(Long id) { this.id = id; }
+
+  public Status getStatus() { return status; }
+  public void setStatus(Status status) { this.status = status; }
+
+  public SomeEntity getEntity() { return entity; }
+  public void setEntity(SomeEntity entity) { this.entity = entity; }
+}
@@ -8,18 +8,15 @@ public class SomeEntity {
   @NotNull
   private String svalue;
 
+  // Bumped by every update; a non-null version on an update payload makes the update conditional
+  private Long version;
+
   public Long getId() { return id; }
   public void setId(Long id) { this.id = id; }
 
   public String getSvalue() { return svalue; }
   public void setSvalue(String svalue) { this.svalue = svalue; }
 
-  // If 'this' (the payload) has no value, fallback to existing.
-  // Otherwise, keep 'this' value to perform the update.
-  public SomeEntity merge(SomeEntity existingEntity) {
-    if (this.svalue == null) {
-      this.svalue = existingEntity.getSvalue();
-    }
-    return this;
-  }
+  public Long getVersion() { return version; }
+  public void setVersion(Long version) { this.version = version; }
 }
\ No newline at end of file
@@ -0,0 +1,33 @@
+package com.example.webfluxplay.api;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimitTest {
+
+  @Test
+  void limit_shouldBackOffWhenOverloaded_andGrowBackWhileBusy() {
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 2, 12);
+    for (int i = 0; i < 10; i++) {
+      assertThat(limit.tryAcquire()).isTrue();
+    }
+    assertThat(limit.tryAcquire()).isFalse();
+
+    for (int i = 0; i < 10; i++) {
+      limit.release(true);
+    }
+    assertThat(limit.limit()).isEqualTo(3);
+
+    // Healthy finishes at full use add about one slot per limit's worth of requests
+    for (int round = 0; round < 40; round++) {
+      while (limit.tryAcquire()) {
+        // fill every slot
+      }
+      while (limit.inFlight() > 0) {
+        limit.release(false);
+      }
+    }
+    assertThat(limit.limit()).isEqualTo(12);
+  }
+}
@@ -0,0 +1,61 @@
+package com.example.webfluxplay.api;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DeadlineFilterTest {
+
+  @Test
+  void streamedResponses_shouldOnlyGetTheDeadlineTheClientAsksFor() {
+    DeadlineProperties properties = new DeadlineProperties();
+    properties.setDefaultBudget(Duration.ofSeconds(1));
+    DeadlineFilter filter = new DeadlineFilter(properties, new SimpleMeterRegistry());
+
+    assertThat(hasDeadline(filter, MockServerHttpRequest.get("/api/someentity")
+        .accept(MediaType.APPLICATION_JSON))).isTrue();
+    assertThat(hasDeadline(filter, MockServerHttpRequest.get("/api/someentity")
+        .accept(MediaType.APPLICATION_NDJSON))).isFalse();
+    assertThat(hasDeadline(filter, MockServerHttpRequest.get("/api/someentity")
+        .accept(RoutingConfig.APPLICATION_STREAM_SMILE))).isFalse();
+    assertThat(hasDeadline(filter, MockServerHttpRequest.get("/api/someentity")
+        .accept(MediaType.APPLICATION_NDJSON)
+        .header(properties.getHeader(), "5000"))).isTrue();
+  }
+
+  @Test
+  void zeroBudgetRoutes_shouldOnlyGetTheDeadlineTheClientAsksFor() {
+    DeadlineProperties properties = new DeadlineProperties();
+    properties.setDefaultBudget(Duration.ofSeconds(1));
+    DeadlineProperties.Route batchDelete = new DeadlineProperties.Route();
+    batchDelete.setMethod("POST");
+    batchDelete.setPattern("/api/someentity/batch-delete");
+    properties.getRoutes().add(batchDelete);
+    DeadlineFilter filter = new DeadlineFilter(properties, new SimpleMeterRegistry());
+
+    assertThat(hasDeadline(filter, MockServerHttpRequest.post("/api/someentity/batch-delete"))).isFalse();
+    assertThat(hasDeadline(filter, MockServerHttpRequest.post("/api/someentity/batch-delete")
+        .header(properties.getHeader(), "5000"))).isTrue();
+    assertThat(hasDeadline(filter, MockServerHttpRequest.post("/api/someentity/batch-update"))).isTrue();
+  }
+
+  // The chain sees an empty Context unless the filter put a deadline in it
+  private static boolean hasDeadline(DeadlineFilter filter, MockServerHttpRequest.BaseBuilder<?> request) {
+    AtomicBoolean seen = new AtomicBoolean();
+    WebFilterChain chain = exchange -> Mono.deferContextual(context -> {
+      seen.set(!context.isEmpty());
+      return Mono.empty();
+    });
+    filter.filter(MockServerWebExchange.from(request), chain).block();
+    return seen.get();
+  }
+}
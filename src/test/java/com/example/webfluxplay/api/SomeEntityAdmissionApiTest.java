@@ -0,0 +1,108 @@
+package com.example.webfluxplay.api;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+// Tight limits so each rule trips within a handful of requests. Every scenario uses its own client
+// addresses, taken from X-Forwarded-For as they would be behind a proxy.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = {
+        "server.forward-headers-strategy=framework",
+        "someentity.admission.client.permits-per-second=1",
+        "someentity.admission.client.burst=2",
+        "someentity.admission.routes[0].method=GET",
+        "someentity.admission.routes[0].pattern=/api/someentity/{id:[0-9]+}",
+        "someentity.admission.routes[0].permits-per-second=0.5",
+        "someentity.admission.routes[0].burst=2",
+        "someentity.admission.shedding.initial-limit=1",
+        "someentity.admission.shedding.min-limit=1",
+        "someentity.admission.shedding.max-limit=1",
+        "someentity.admission.shedding.exclude=/actuator/**"
+    })
+@AutoConfigureWebTestClient
+class SomeEntityAdmissionApiTest {
+
+  private static final String FORWARDED_FOR = "X-Forwarded-For";
+
+  @Autowired
+  private WebTestClient webTestClient;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @LocalServerPort
+  private int port;
+
+  @Test
+  void clientRate_shouldAnswer429_perClient() {
+    list("10.0.1.1").expectStatus().isOk();
+    list("10.0.1.1").expectStatus().isOk();
+    list("10.0.1.1").expectStatus().isEqualTo(429).expectHeader().valueEquals(HttpHeaders.RETRY_AFTER, "1");
+    // A client id of its own choosing does not buy the same address a fresh bucket
+    webTestClient.get().uri("/api/someentity")
+        .header(FORWARDED_FOR, "10.0.1.1")
+        .header(ReadYourWritesFilter.CLIENT_ID_HEADER, "someone-else")
+        .exchange()
+        .expectStatus().isEqualTo(429);
+
+    list("10.0.1.2").expectStatus().isOk();
+  }
+
+  @Test
+  void routeRate_shouldBeSharedByAllClients() {
+    get("/api/someentity/1", "10.0.2.1").expectStatus().isNotFound();
+    get("/api/someentity/1", "10.0.2.2").expectStatus().isNotFound();
+    get("/api/someentity/1", "10.0.2.3").expectStatus().isEqualTo(429)
+        .expectHeader().valueEquals(HttpHeaders.RETRY_AFTER, "2");
+
+    assertThat(meterRegistry.get("someentity.admission.rejected")
+        .tag("reason", "route").tag("route", "GET /api/someentity/{id:[0-9]+}").counter().count()).isEqualTo(1);
+  }
+
+  @Test
+  void concurrencyLimit_shouldShedWhileTheOnlySlotIsHeld() {
+    // An open change stream holds the single slot until it is cancelled
+    Disposable stream = WebClient.create("http://localhost:" + port).get().uri("/api/someentity/changes")
+        .header(FORWARDED_FOR, "10.0.3.1")
+        .accept(MediaType.TEXT_EVENT_STREAM)
+        .retrieve()
+        .bodyToFlux(String.class)
+        .subscribe();
+    try {
+      await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+          assertThat(meterRegistry.get("someentity.admission.inflight").gauge().value()).isEqualTo(1));
+      list("10.0.3.2").expectStatus().isEqualTo(503)
+          .expectHeader().valueEquals(HttpHeaders.RETRY_AFTER, "1");
+    } finally {
+      stream.dispose();
+    }
+
+    await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+        assertThat(meterRegistry.get("someentity.admission.inflight").gauge().value()).isZero());
+    list("10.0.3.3").expectStatus().isOk();
+  }
+
+  private WebTestClient.ResponseSpec list(String client) {
+    return get("/api/someentity", client);
+  }
+
+  private WebTestClient.ResponseSpec get(String uri, String client) {
+    return webTestClient.get().uri(uri)
+        .header(FORWARDED_FOR, client)
+        .exchange();
+  }
+}
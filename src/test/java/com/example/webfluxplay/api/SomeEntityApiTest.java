@@ -1,30 +1,64 @@
 package com.example.webfluxplay.api;
 
 import com.example.webfluxplay.dao.SomeEntityDao;
+import com.example.webfluxplay.model.ChangeEvent;
 import com.example.webfluxplay.model.SomeEntity;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.test.StepVerifier;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @AutoConfigureWebTestClient
+@AutoConfigureObservability(tracing = false)
 class SomeEntityApiTest {
 
   @Autowired
   private WebTestClient webTestClient;
 
+  @LocalServerPort
+  private int port;
+
   @Autowired
   private SomeEntityDao dao;
 
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Autowired
+  private IngestLimiter ingestLimiter;
+
   @BeforeEach
   void setUp() {
     // Clean DB before each API test
@@ -108,6 +142,96 @@ class SomeEntityApiTest {
         .jsonPath("$.svalue").isEqualTo("new");
   }
 
+  @Test
+  void get_shouldReturnETag_andNotModifiedForCurrentVersion() {
+    SomeEntity seed = new SomeEntity();
+    seed.setSvalue("poll-me");
+    SomeEntity saved = dao.save(seed).block();
+
+    webTestClient.get().uri("/api/someentity/" + saved.getId())
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().valueEquals("ETag", "\"0\"");
+
+    webTestClient.get().uri("/api/someentity/" + saved.getId())
+        .header("If-None-Match", "\"0\"")
+        .exchange()
+        .expectStatus().isNotModified()
+        .expectBody().isEmpty();
+  }
+
+  @Test
+  void patch_shouldHonourIfMatch() {
+    SomeEntity seed = new SomeEntity();
+    seed.setSvalue("v0");
+    SomeEntity saved = dao.save(seed).block();
+
+    SomeEntity patch = new SomeEntity();
+    patch.setId(saved.getId());
+    patch.setSvalue("v1");
+
+    webTestClient.patch().uri("/api/someentity")
+        .contentType(MediaType.APPLICATION_JSON)
+        .header("If-Match", "\"0\"")
+        .bodyValue(patch)
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().valueEquals("ETag", "\"1\"");
+
+    // A second writer still holding version 0 loses
+    webTestClient.patch().uri("/api/someentity")
+        .contentType(MediaType.APPLICATION_JSON)
+        .header("If-Match", "\"0\"")
+        .bodyValue(patch)
+        .exchange()
+        .expectStatus().isEqualTo(412);
+
+    patch.setId(Long.MAX_VALUE);
+    webTestClient.patch().uri("/api/someentity")
+        .contentType(MediaType.APPLICATION_JSON)
+        .header("If-Match", "\"0\"")
+        .bodyValue(patch)
+        .exchange()
+        .expectStatus().isNotFound();
+  }
+
+  @Test
+  void patch_shouldMatchAnyListedIfMatchTag() {
+    SomeEntity seed = new SomeEntity();
+    seed.setSvalue("v0");
+    SomeEntity saved = dao.save(seed).block();
+
+    SomeEntity patch = new SomeEntity();
+    patch.setId(saved.getId());
+    patch.setSvalue("v1");
+
+    // A comma-separated list with a weak tag, which If-Match never matches
+    webTestClient.patch().uri("/api/someentity")
+        .contentType(MediaType.APPLICATION_JSON)
+        .header("If-Match", "\"7\", W/\"1\", \"0\"")
+        .bodyValue(patch)
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().valueEquals("ETag", "\"1\"");
+
+    // Tags spread over repeated headers
+    webTestClient.patch().uri("/api/someentity")
+        .contentType(MediaType.APPLICATION_JSON)
+        .header("If-Match", "\"0\"")
+        .header("If-Match", "\"1\"")
+        .bodyValue(patch)
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().valueEquals("ETag", "\"2\"");
+
+    webTestClient.patch().uri("/api/someentity")
+        .contentType(MediaType.APPLICATION_JSON)
+        .header("If-Match", "\"0\", \"1\", W/\"2\"")
+        .bodyValue(patch)
+        .exchange()
+        .expectStatus().isEqualTo(412);
+  }
+
   @Test
   void createBatch_shouldHandleList() {
     List<SomeEntity> batch = IntStream.range(0, 10)
@@ -124,5 +248,383 @@ class SomeEntityApiTest {
         .exchange()
         .expectStatus().isOk()
         .expectBodyList(SomeEntity.class).hasSize(10);
+    await().atMost(Duration.ofSeconds(5)).until(() -> ingestLimiter.active() == 0);
+  }
+
+  @Test
+  void createBatch_shouldReturnTooManyRequests_whenIngestSlotsAreTaken() {
+    List<Runnable> held = IntStream.range(0, 4)
+        .mapToObj(i -> ingestLimiter.tryAcquire().orElseThrow())
+        .toList();
+    try {
+      webTestClient.post().uri("/api/someentity/all")
+          .contentType(MediaType.APPLICATION_JSON)
+          .bodyValue(List.of())
+          .exchange()
+          .expectStatus().isEqualTo(429)
+          .expectHeader().valueEquals("Retry-After", "1");
+    } finally {
+      held.forEach(Runnable::run);
+    }
+    assertThat(meterRegistry.get("someentity.ingest.rejected").counter().count()).isPositive();
+
+    webTestClient.post().uri("/api/someentity/all")
+        .contentType(MediaType.APPLICATION_JSON)
+        .bodyValue(List.of())
+        .exchange()
+        .expectStatus().isOk();
+  }
+
+  @Test
+  void batchUpdate_andBatchDelete_shouldStreamPerItemResults() {
+    SomeEntity seed = new SomeEntity();
+    seed.setSvalue("before");
+    SomeEntity saved = dao.save(seed).block();
+
+    SomeEntity patch = new SomeEntity();
+    patch.setId(saved.getId());
+    patch.setSvalue("after");
+    SomeEntity missing = new SomeEntity();
+    missing.setId(Long.MAX_VALUE);
+    missing.setSvalue("nobody");
+
+    webTestClient.patch().uri("/api/someentity/batch-update")
+        .contentType(MediaType.APPLICATION_JSON)
+        .bodyValue(List.of(patch, missing))
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody()
+        .jsonPath("$[0].status").isEqualTo("UPDATED")
+        .jsonPath("$[0].entity.svalue").isEqualTo("after")
+        .jsonPath("$[1].status").isEqualTo("NOT_FOUND");
+
+    webTestClient.post().uri("/api/someentity/batch-delete")
+        .contentType(MediaType.APPLICATION_JSON)
+        .bodyValue(List.of(saved.getId(), Long.MAX_VALUE))
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody()
+        .jsonPath("$[0].status").isEqualTo("DELETED")
+        .jsonPath("$[1].status").isEqualTo("NOT_FOUND");
+
+    webTestClient.get().uri("/api/someentity/" + saved.getId())
+        .exchange()
+        .expectStatus().isNotFound();
+  }
+
+  @Test
+  void deleteByIdList_shouldDeleteEveryListedId() {
+    SomeEntity a = new SomeEntity(); a.setSvalue("a");
+    SomeEntity b = new SomeEntity(); b.setSvalue("b");
+    List<SomeEntity> saved = dao.saveAll(List.of(a, b)).collectList().block();
+
+    webTestClient.delete().uri("/api/someentity?id={a}&id={b}", saved.get(0).getId(), saved.get(1).getId())
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody()
+        .jsonPath("$.length()").isEqualTo(2)
+        .jsonPath("$[*].status").value(statuses -> assertThat(statuses.toString()).doesNotContain("NOT_FOUND"));
+
+    webTestClient.delete().uri("/api/someentity")
+        .exchange()
+        .expectStatus().isBadRequest();
+  }
+
+  @Test
+  void changes_shouldReplayAndPushWrites() {
+    SomeEntity first = new SomeEntity();
+    first.setSvalue("first");
+    SomeEntity saved = dao.save(first).block();
+
+    Flux<ServerSentEvent<ChangeEvent>> events = webTestClient.get().uri("/api/someentity/changes")
+        .header("Last-Event-ID", "0")
+        .accept(MediaType.TEXT_EVENT_STREAM)
+        .exchange()
+        .expectStatus().isOk()
+        .returnResult(new ParameterizedTypeReference<ServerSentEvent<ChangeEvent>>() {})
+        .getResponseBody();
+
+    SomeEntity second = new SomeEntity();
+    second.setSvalue("second");
+    StepVerifier.create(events.filter(e -> e.data() != null && e.data().getEntity() != null))
+        // Replayed from the retained window
+        .thenConsumeWhile(e -> !saved.getId().equals(e.data().getId()))
+        .consumeNextWith(e -> assertThat(e.event()).isEqualTo("created"))
+        // Pushed live
+        .then(() -> dao.save(second).subscribe())
+        .thenConsumeWhile(e -> !"second".equals(e.data().getEntity().getSvalue()))
+        .consumeNextWith(e -> assertThat(Long.parseLong(e.id())).isEqualTo(e.data().getSequence()))
+        .thenCancel()
+        .verify(Duration.ofSeconds(10));
+  }
+
+  @Test
+  void smile_shouldRoundTripSingleAndBulkWrites() {
+    SomeEntity one = new SomeEntity();
+    one.setSvalue("binary");
+    SomeEntity created = webTestClient.post().uri("/api/someentity")
+        .contentType(RoutingConfig.APPLICATION_SMILE)
+        .accept(RoutingConfig.APPLICATION_SMILE)
+        .bodyValue(one)
+        .exchange()
+        .expectStatus().isCreated()
+        .expectHeader().contentType(RoutingConfig.APPLICATION_SMILE)
+        .expectBody(SomeEntity.class).returnResult().getResponseBody();
+    assertThat(created.getSvalue()).isEqualTo("binary");
+
+    List<SomeEntity> batch = IntStream.range(0, 300)
+        .mapToObj(i -> {
+          SomeEntity e = new SomeEntity();
+          e.setSvalue("smile-" + i);
+          return e;
+        })
+        .toList();
+    webTestClient.post().uri("/api/someentity/all")
+        .contentType(RoutingConfig.APPLICATION_SMILE)
+        .accept(RoutingConfig.APPLICATION_SMILE)
+        .bodyValue(batch)
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().contentType(RoutingConfig.APPLICATION_STREAM_SMILE)
+        .expectBodyList(SomeEntity.class)
+        .value(saved -> assertThat(saved).extracting(SomeEntity::getSvalue)
+            .containsExactlyElementsOf(batch.stream().map(SomeEntity::getSvalue).toList()));
+
+    webTestClient.get().uri("/api/someentity/" + created.getId())
+        .accept(RoutingConfig.APPLICATION_SMILE)
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().contentType(RoutingConfig.APPLICATION_SMILE)
+        .expectBody(SomeEntity.class)
+        .value(found -> assertThat(found.getSvalue()).isEqualTo("binary"));
+
+    // Plain clients still get JSON
+    webTestClient.get().uri("/api/someentity/" + created.getId())
+        .exchange()
+        .expectHeader().contentType(MediaType.APPLICATION_JSON);
+  }
+
+  @Test
+  void getAll_shouldPage_withNextLink() {
+    List<SomeEntity> seeds = IntStream.range(0, 5)
+        .mapToObj(i -> {
+          SomeEntity e = new SomeEntity();
+          e.setSvalue("page-" + i);
+          return e;
+        })
+        .collect(Collectors.toList());
+    dao.saveAll(seeds).blockLast();
+
+    webTestClient.get().uri("/api/someentity?limit=3")
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().valueMatches("Link", "<.*after=" + seeds.get(2).getId() + ".*>; rel=\"next\"")
+        .expectBodyList(SomeEntity.class).hasSize(3);
+
+    webTestClient.get().uri("/api/someentity?limit=3&after=" + seeds.get(2).getId())
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().doesNotExist("Link")
+        .expectBodyList(SomeEntity.class).hasSize(2);
+  }
+
+  @Test
+  void createBatch_shouldAcceptGzipBody() throws IOException {
+    String json = IntStream.range(0, 500)
+        .mapToObj(i -> "{\"svalue\":\"gz-" + i + "\"}")
+        .collect(Collectors.joining(",", "[", "]"));
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+      gzip.write(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    webTestClient.post().uri("/api/someentity/all")
+        .contentType(MediaType.APPLICATION_JSON)
+        .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+        .bodyValue(compressed.toByteArray())
+        .exchange()
+        .expectStatus().isOk()
+        .expectBodyList(SomeEntity.class).hasSize(500);
+
+    webTestClient.post().uri("/api/someentity/all")
+        .contentType(MediaType.APPLICATION_JSON)
+        .header(HttpHeaders.CONTENT_ENCODING, "zstd")
+        .bodyValue(compressed.toByteArray())
+        .exchange()
+        .expectStatus().isEqualTo(HttpStatus.UNSUPPORTED_MEDIA_TYPE);
+
+    webTestClient.post().uri("/api/someentity/all")
+        .contentType(MediaType.APPLICATION_JSON)
+        .header(HttpHeaders.CONTENT_ENCODING, " Identity")
+        .bodyValue(json)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBodyList(SomeEntity.class).hasSize(500);
+  }
+
+  @Test
+  void create_shouldRejectBodiesThatInflatePastTheCap() throws IOException {
+    // 64 MB of zeros compresses to a few hundred KB, far past the cap for a single document
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+      byte[] zeros = new byte[1 << 20];
+      for (int i = 0; i < 64; i++) {
+        gzip.write(zeros);
+      }
+    }
+
+    webTestClient.post().uri("/api/someentity")
+        .contentType(MediaType.APPLICATION_JSON)
+        .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+        .bodyValue(compressed.toByteArray())
+        .exchange()
+        .expectStatus().isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE);
+  }
+
+  @Test
+  void getAll_shouldCompressLargeResponses() throws IOException {
+    dao.bulkInsert(Flux.range(0, 200).map(i -> {
+      SomeEntity e = new SomeEntity();
+      e.setSvalue("compressible-" + i);
+      return e;
+    })).blockLast();
+
+    // Raw client: WebTestClient's connector inflates transparently and drops the header
+    byte[] body = HttpClient.create()
+        .headers(headers -> headers.add(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+        .get().uri("http://localhost:" + port + "/api/someentity?limit=200")
+        .responseSingle((response, content) -> {
+          assertThat(response.responseHeaders().get(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+          return content.asByteArray();
+        })
+        .block();
+    try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(body))) {
+      assertThat(new String(gzip.readAllBytes(), StandardCharsets.UTF_8)).contains("compressible-199");
+    }
+  }
+
+  @Test
+  void server_shouldSpeakH2c() {
+    HttpClient.create()
+        .protocol(HttpProtocol.H2C)
+        .get().uri("http://localhost:" + port + "/api/someentity")
+        .response()
+        .as(StepVerifier::create)
+        .assertNext(response -> assertThat(response.version().text()).isEqualTo("HTTP/2.0"))
+        .verifyComplete();
+  }
+
+  @Test
+  void getAll_shouldFilterBySvalueOrPrefix() {
+    List<SomeEntity> seeds = Stream.of("apple", "apricot", "banana", "apple")
+        .map(value -> {
+          SomeEntity e = new SomeEntity();
+          e.setSvalue(value);
+          return e;
+        })
+        .toList();
+    dao.saveAll(seeds).blockLast();
+
+    webTestClient.get().uri("/api/someentity?svalue=apple")
+        .exchange()
+        .expectStatus().isOk()
+        .expectBodyList(SomeEntity.class)
+        .value(found -> assertThat(found).extracting(SomeEntity::getId)
+            .containsExactly(seeds.get(0).getId(), seeds.get(3).getId()));
+
+    // Prefix pages run in (svalue, id) order and carry both halves of the cursor
+    webTestClient.get().uri("/api/someentity?prefix=ap&limit=2")
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().valueMatches("Link",
+            "<.*prefix=ap.*after=" + seeds.get(3).getId() + ".*afterSvalue=apple.*>; rel=\"next\"")
+        .expectBodyList(SomeEntity.class)
+        .value(found -> assertThat(found).extracting(SomeEntity::getId)
+            .containsExactly(seeds.get(0).getId(), seeds.get(3).getId()));
+    webTestClient.get().uri("/api/someentity?prefix=ap&limit=2&after=" + seeds.get(3).getId() + "&afterSvalue=apple")
+        .exchange()
+        .expectStatus().isOk()
+        .expectBodyList(SomeEntity.class)
+        .value(found -> assertThat(found).extracting(SomeEntity::getSvalue).containsExactly("apricot"));
+
+    webTestClient.get().uri("/api/someentity?svalue=apple&prefix=ap")
+        .exchange()
+        .expectStatus().isBadRequest();
+  }
+
+  @Test
+  void getAll_shouldStreamNdjson() {
+    SomeEntity seed = new SomeEntity();
+    seed.setSvalue("stream");
+    dao.save(seed).block();
+
+    webTestClient.get().uri("/api/someentity")
+        .accept(MediaType.APPLICATION_NDJSON)
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+        .returnResult(SomeEntity.class)
+        .getResponseBody()
+        .as(StepVerifier::create)
+        .expectNextMatches(e -> "stream".equals(e.getSvalue()))
+        .verifyComplete();
+  }
+
+  @Test
+  void getAll_shouldRejectBadCursor() {
+    webTestClient.get().uri("/api/someentity?after=abc")
+        .exchange()
+        .expectStatus().isBadRequest();
+  }
+
+  @Test
+  void readiness_shouldBeUp_afterStartupPhase() {
+    webTestClient.get().uri("/actuator/health/readiness")
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody()
+        .jsonPath("$.status").isEqualTo("UP");
+  }
+
+  @Test
+  void routes_shouldBeTimed_andScrapeable() {
+    webTestClient.get().uri("/api/someentity/-1")
+        .exchange()
+        .expectStatus().isNotFound();
+
+    // The server records after the response has been flushed, so allow it to catch up
+    await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> {
+      Timer timer = meterRegistry.find("someentity.http.requests")
+          .tags("route", "/api/someentity/{id}", "status", "404")
+          .timer();
+      assertThat(timer).isNotNull();
+      assertThat(meterRegistry.find("someentity.dao").tag("operation", "findById").timer()).isNotNull();
+    });
+
+    webTestClient.get().uri("/actuator/prometheus")
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(String.class)
+        .value(body -> assertThat(body).contains("someentity_http_requests_seconds_bucket"));
+  }
+
+  @Test
+  void deadline_shouldAnswer504_onceTheRequestedBudgetIsSpent() {
+    webTestClient.get().uri("/api/someentity")
+        .header("X-Request-Timeout", "5000")
+        .exchange()
+        .expectStatus().isOk();
+
+    webTestClient.get().uri("/api/someentity")
+        .header("X-Request-Timeout", "0")
+        .exchange()
+        .expectStatus().isEqualTo(HttpStatus.GATEWAY_TIMEOUT);
+    assertThat(meterRegistry.get("someentity.deadline.exceeded").tag("route", "GET /api/someentity").counter().count())
+        .isGreaterThanOrEqualTo(1);
+
+    webTestClient.get().uri("/api/someentity")
+        .header("X-Request-Timeout", "soon")
+        .exchange()
+        .expectStatus().isBadRequest();
   }
-}
\ No newline at end of file
+}
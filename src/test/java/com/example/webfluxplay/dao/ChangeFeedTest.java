@@ -0,0 +1,170 @@
+package com.example.webfluxplay.dao;
+
+import com.example.webfluxplay.model.ChangeEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.Exceptions;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChangeFeedTest {
+
+  private static ChangeFeed feed(int replaySize, int bufferSize, ChangeStreamProperties.Overflow overflow) {
+    return feed(replaySize, bufferSize, overflow, new SimpleMeterRegistry());
+  }
+
+  private static ChangeFeed feed(int replaySize, int bufferSize, ChangeStreamProperties.Overflow overflow,
+                                 MeterRegistry registry) {
+    ChangeStreamProperties properties = new ChangeStreamProperties();
+    properties.setReplaySize(replaySize);
+    properties.setBufferSize(bufferSize);
+    properties.setOverflow(overflow);
+    return new ChangeFeed(properties, registry);
+  }
+
+  @Test
+  void events_shouldReplayAfterSequence_thenGoLive() {
+    ChangeFeed feed = feed(10, 10, ChangeStreamProperties.Overflow.DROP_OLDEST);
+    feed.publish(ChangeEvent.Type.CREATED, 1L, null);
+    feed.publish(ChangeEvent.Type.UPDATED, 1L, null);
+
+    StepVerifier.create(feed.events(1).map(ChangeEvent::getSequence))
+        .expectNext(2L)
+        .then(() -> feed.publish(ChangeEvent.Type.DELETED, 1L, null))
+        .expectNext(3L)
+        .thenCancel()
+        .verify(Duration.ofSeconds(5));
+  }
+
+  @Test
+  void events_shouldStartWithReset_whenResumePointWasEvicted() {
+    ChangeFeed feed = feed(2, 10, ChangeStreamProperties.Overflow.DROP_OLDEST);
+    for (long id = 1; id <= 5; id++) {
+      feed.publish(ChangeEvent.Type.CREATED, id, null);
+    }
+
+    StepVerifier.create(feed.events(1).map(e -> e.getType() + "@" + e.getSequence()))
+        .expectNext("RESET@3", "CREATED@4", "CREATED@5")
+        .thenCancel()
+        .verify(Duration.ofSeconds(5));
+  }
+
+  @Test
+  void events_shouldReplayOnDemand_whenTheReplayExceedsTheBuffer() {
+    MeterRegistry registry = new SimpleMeterRegistry();
+    ChangeFeed feed = feed(1000, 256, ChangeStreamProperties.Overflow.DROP_OLDEST, registry);
+    for (long id = 1; id <= 800; id++) {
+      feed.publish(ChangeEvent.Type.CREATED, id, null);
+    }
+
+    // 700 behind, asking for 32 at a time like a network writer
+    StepVerifier.create(feed.events(100).map(ChangeEvent::getSequence), 32)
+        .expectNextSequence(LongStream.rangeClosed(101, 132).boxed().toList())
+        .then(() -> feed.publish(ChangeEvent.Type.CREATED, 801L, null))
+        .thenRequest(700)
+        .expectNextSequence(LongStream.rangeClosed(133, 801).boxed().toList())
+        .thenCancel()
+        .verify(Duration.ofSeconds(5));
+    assertThat(registry.get("someentity.changes.dropped").counter().count()).isZero();
+  }
+
+  @Test
+  void events_shouldDropOldest_forASlowSubscriber() {
+    MeterRegistry registry = new SimpleMeterRegistry();
+    ChangeFeed feed = feed(0, 2, ChangeStreamProperties.Overflow.DROP_OLDEST, registry);
+
+    StepVerifier.create(feed.events(-1).map(ChangeEvent::getSequence), 0)
+        .then(() -> {
+          awaitSubscribers(registry, 1);
+          for (long id = 1; id <= 5; id++) {
+            feed.publish(ChangeEvent.Type.CREATED, id, null);
+          }
+        })
+        // Delivery is asynchronous; wait until the buffer has shed the three oldest
+        .then(() -> await(() -> registry.get("someentity.changes.dropped").counter().count() == 3))
+        .thenRequest(2)
+        .expectNext(4L, 5L)
+        .thenCancel()
+        .verify(Duration.ofSeconds(5));
+  }
+
+  @Test
+  void events_shouldDisconnect_aSlowSubscriber_whenConfigured() {
+    MeterRegistry registry = new SimpleMeterRegistry();
+    ChangeFeed feed = feed(0, 2, ChangeStreamProperties.Overflow.DISCONNECT, registry);
+
+    StepVerifier.create(feed.events(-1), 0)
+        .then(() -> {
+          awaitSubscribers(registry, 1);
+          for (long id = 1; id <= 5; id++) {
+            feed.publish(ChangeEvent.Type.CREATED, id, null);
+          }
+        })
+        // The overflow cuts the subscriber off the feed before it asks for anything
+        .then(() -> await(() -> registry.get("someentity.changes.subscribers").gauge().value() == 0))
+        .thenRequest(10)
+        .expectNextCount(2)
+        .expectErrorSatisfies(e -> assertThat(Exceptions.isOverflow(e)).isTrue())
+        .verify(Duration.ofSeconds(5));
+  }
+
+  @Test
+  void publish_shouldNotRunSubscriberCode() throws Exception {
+    MeterRegistry registry = new SimpleMeterRegistry();
+    ChangeFeed feed = feed(10, 10, ChangeStreamProperties.Overflow.DROP_OLDEST, registry);
+    CountDownLatch release = new CountDownLatch(1);
+    Set<String> threads = ConcurrentHashMap.newKeySet();
+    Disposable stuck = feed.events(-1)
+        .subscribe(event -> {
+          threads.add(Thread.currentThread().getName());
+          awaitQuietly(release);
+        });
+    try {
+      awaitSubscribers(registry, 1);
+      // The first event blocks its consumer; writers carry on regardless
+      CompletableFuture.runAsync(() -> {
+        for (long id = 1; id <= 3; id++) {
+          feed.publish(ChangeEvent.Type.CREATED, id, null);
+        }
+      }).get(5, TimeUnit.SECONDS);
+      assertThat(threads).allMatch(name -> name.startsWith("someentity-changes"));
+    } finally {
+      release.countDown();
+      stuck.dispose();
+      feed.dispose();
+    }
+  }
+
+  // Subscribers are attached on the delivery thread
+  private static void awaitSubscribers(MeterRegistry registry, int count) {
+    await(() -> registry.get("someentity.changes.subscribers").gauge().value() >= count);
+  }
+
+  private static void await(BooleanSupplier condition) {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!condition.getAsBoolean()) {
+      assertThat(System.nanoTime()).as("condition reached in time").isLessThan(deadline);
+      Thread.onSpinWait();
+    }
+  }
+
+  private static void awaitQuietly(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,76 @@
+package com.example.webfluxplay.dao;
+
+import com.example.webfluxplay.model.SomeEntity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.dao.R2dbcDao;
+import io.r2dbc.spi.ConnectionFactories;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdAllocatorTest {
+
+  @Test
+  void hiLo_shouldServeFromTheCurrentBlock_andFetchOnlyWhatIsMissing() {
+    R2dbcDao dao = new R2dbcDao(ConnectionFactories.get("r2dbc:h2:mem:///hilo?options=DB_CLOSE_DELAY=-1"));
+    dao.execute(new H2Dialect().createIdSequence()).blockLast();
+    HiLoIdAllocator allocator = new HiLoIdAllocator(dao, new H2Dialect().nextIdBlock(), 100);
+
+    long[] first = allocator.allocate(5).block();
+    long[] second = allocator.allocate(3).block();
+    long[] large = allocator.allocate(250).block();
+
+    assertThat(second[0]).isEqualTo(first[4] + 1);
+    long[] all = LongStream.concat(LongStream.concat(Arrays.stream(first), Arrays.stream(second)), Arrays.stream(large)).toArray();
+    assertThat(Arrays.stream(all).distinct().count()).isEqualTo(all.length);
+    // 8 + 250 ids need three blocks in total
+    assertThat(dao.select("SELECT NEXT VALUE FOR some_entity_hilo", (row, meta) -> row.get(0, Long.class)).blockFirst())
+        .isEqualTo(4L);
+  }
+
+  @Test
+  void everyStrategy_shouldHandBackEntitiesWithTheirOwnIds() {
+    for (IdProperties.Strategy strategy : IdProperties.Strategy.values()) {
+      SomeEntityDao dao = dao("ids_" + strategy, strategy);
+
+      List<SomeEntity> saved = dao.saveAll(IntStream.range(0, 5).mapToObj(i -> entity("all" + i)).toList())
+          .concatWith(dao.bulkInsert(Flux.range(0, 250).map(i -> entity("bulk" + i))))
+          .concatWith(dao.save(entity("single")))
+          .collectList().block();
+
+      assertThat(saved).hasSize(256);
+      assertThat(saved.stream().map(SomeEntity::getId).distinct().count()).isEqualTo(256);
+      for (SomeEntity entity : List.of(saved.get(0), saved.get(100), saved.get(255))) {
+        assertThat(dao.findById(entity.getId()).block().getSvalue()).as(strategy.name()).isEqualTo(entity.getSvalue());
+      }
+    }
+  }
+
+  private static SomeEntityDao dao(String database, IdProperties.Strategy strategy) {
+    ConnectionPoolProperties pool = new ConnectionPoolProperties();
+    pool.setName(database);
+    pool.setUrl("r2dbc:h2:mem:///" + database + "?options=DB_CLOSE_DELAY=-1");
+    BatchingProperties batching = new BatchingProperties();
+    batching.getReads().setEnabled(false);
+    IdProperties ids = new IdProperties();
+    ids.setStrategy(strategy);
+    ids.setBlockSize(100);
+
+    SomeEntityDao dao = new SomeEntityDao(new H2Dialect(), pool, new CacheProperties(), batching,
+        new BulkInsertProperties(), new ChangeStreamProperties(), new ReplicaProperties(), ids, new SimpleMeterRegistry());
+    dao.initialize().block();
+    return dao;
+  }
+
+  private static SomeEntity entity(String svalue) {
+    SomeEntity entity = new SomeEntity();
+    entity.setSvalue(svalue);
+    return entity;
+  }
+}
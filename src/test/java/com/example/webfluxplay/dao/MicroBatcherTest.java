@@ -0,0 +1,144 @@
+package com.example.webfluxplay.dao;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MicroBatcherTest {
+
+  private static BatchingProperties.Window window(int maxSize) {
+    BatchingProperties.Window window = new BatchingProperties.Window(true);
+    window.setMaxSize(maxSize);
+    window.setMaxWait(Duration.ofMillis(50));
+    return window;
+  }
+
+  @Test
+  void submit_shouldGroupConcurrentCalls_andFanOutInOrder() {
+    List<List<Integer>> batches = new CopyOnWriteArrayList<>();
+    MicroBatcher<Integer, String> batcher = new MicroBatcher<>(window(10), items -> {
+      batches.add(items);
+      return Mono.just(items.stream().map(i -> i % 2 == 0 ? "v" + i : null).toList());
+    });
+
+    StepVerifier.create(Flux.range(0, 4)
+            .flatMap(i -> batcher.submit(i).map(v -> i + "=" + v).defaultIfEmpty(i + "=empty"))
+            .collectList())
+        .assertNext(results -> assertThat(results)
+            .containsExactlyInAnyOrder("0=v0", "1=empty", "2=v2", "3=empty"))
+        .verifyComplete();
+
+    assertThat(batches).hasSize(1);
+  }
+
+  @Test
+  void submit_shouldFailOnlyTheCallersOfAFailedBatch() {
+    MicroBatcher<Integer, Integer> batcher = new MicroBatcher<>(window(1), items ->
+        items.get(0) < 0 ? Mono.error(new IllegalStateException("boom")) : Mono.just(items));
+
+    StepVerifier.create(batcher.submit(-1))
+        .expectError(IllegalStateException.class)
+        .verify();
+
+    StepVerifier.create(batcher.submit(7))
+        .expectNext(7)
+        .verifyComplete();
+  }
+
+  @Test
+  void submit_shouldRetryAFailedBatchItemByItem_soOnlyTheBadItemFails() {
+    List<Integer> singles = new CopyOnWriteArrayList<>();
+    MicroBatcher<Integer, Integer> batcher = new MicroBatcher<>(window(4),
+        items -> items.contains(-1) ? Mono.error(new IllegalArgumentException("bad item")) : Mono.just(items),
+        item -> {
+          singles.add(item);
+          return item < 0 ? Mono.error(new IllegalArgumentException("bad item")) : Mono.just(item * 10);
+        });
+
+    StepVerifier.create(Flux.just(1, -1, 2, 3)
+            .flatMap(i -> batcher.submit(i).map(String::valueOf).onErrorResume(e -> Mono.just("failed")))
+            .collectList())
+        .assertNext(results -> assertThat(results).containsExactlyInAnyOrder("10", "failed", "20", "30"))
+        .verifyComplete();
+
+    assertThat(singles).containsExactly(1, -1, 2, 3);
+  }
+
+  @Test
+  void submit_shouldKeepServingSequentialCallers_beyondOneRoundOfDemand() {
+    BatchingProperties.Window window = window(10);
+    window.setMaxWait(Duration.ofMillis(1));
+    // Completing on another thread makes each submit race the previous window's timer
+    MicroBatcher<Integer, Integer> batcher = new MicroBatcher<>(window,
+        items -> Mono.just(items).publishOn(Schedulers.boundedElastic()));
+
+    StepVerifier.create(Flux.range(0, 2000).concatMap(batcher::submit).count())
+        .expectNext(2000L)
+        .expectComplete()
+        .verify(Duration.ofSeconds(30));
+  }
+
+  @Test
+  void submit_shouldResolveEveryCaller_whenWindowsCloseOnSizeAndTimeFromManyThreads() {
+    BatchingProperties.Window window = window(8);
+    window.setMaxWait(Duration.ofNanos(1));
+    // Slow batches keep every slot busy, so closed windows pile up in the queue while being emitted
+    MicroBatcher<Integer, Integer> batcher = new MicroBatcher<>(window,
+        items -> Mono.just(items).delayElement(Duration.ofMillis(1)));
+
+    StepVerifier.create(Flux.range(0, 4_000)
+            .parallel(8)
+            .runOn(Schedulers.parallel())
+            .flatMap(batcher::submit)
+            .sequential()
+            .count())
+        .expectNext(4_000L)
+        .expectComplete()
+        .verify(Duration.ofSeconds(30));
+  }
+
+  @Test
+  void submit_shouldRunTheWindowUnderItsEarliestDeadline_andCancelItOnceEveryCallerHasGone() {
+    List<Duration> budgets = new CopyOnWriteArrayList<>();
+    AtomicBoolean cancelled = new AtomicBoolean();
+    MicroBatcher<Integer, Integer> batcher = new MicroBatcher<>(window(2), items -> Mono.deferContextual(context -> {
+      budgets.add(Deadline.remaining(context).orElseThrow());
+      return Mono.<List<Integer>>never().doOnCancel(() -> cancelled.set(true));
+    }));
+
+    StepVerifier.create(Flux.merge(
+            batcher.submit(1).contextWrite(context -> Deadline.after(context, Duration.ofSeconds(30))),
+            batcher.submit(2).contextWrite(context -> Deadline.after(context, Duration.ofSeconds(1)))))
+        .thenAwait(Duration.ofMillis(100))
+        .thenCancel()
+        .verify(Duration.ofSeconds(5));
+
+    assertThat(budgets).hasSize(1);
+    assertThat(budgets.get(0)).isLessThanOrEqualTo(Duration.ofSeconds(1));
+    assertThat(cancelled).isTrue();
+  }
+
+  @Test
+  void dispose_shouldFailWaitingCallers_andRejectLaterOnes() {
+    BatchingProperties.Window window = window(10);
+    window.setMaxWait(Duration.ofMinutes(1));
+    MicroBatcher<Integer, Integer> batcher = new MicroBatcher<>(window, Mono::just);
+
+    Mono<Integer> waiting = batcher.submit(1).cache();
+    waiting.subscribe(value -> {}, error -> {});
+    batcher.dispose();
+
+    assertThat(batcher.isDisposed()).isTrue();
+    StepVerifier.create(waiting).expectError(IllegalStateException.class).verify(Duration.ofSeconds(5));
+    StepVerifier.create(batcher.submit(2)).expectError(IllegalStateException.class).verify(Duration.ofSeconds(5));
+  }
+}
@@ -0,0 +1,32 @@
+package com.example.webfluxplay.dao;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.spi.ConnectionFactories;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReplicaRouterTest {
+
+  @Test
+  void close_shouldStopHealthChecks_andCloseTheReplicaPools() {
+    ConnectionPoolProperties pool = new ConnectionPoolProperties();
+    pool.setName("closing");
+    pool.setUrl("r2dbc:h2:mem:///closing-replica?options=DB_CLOSE_DELAY=-1");
+    ReplicaProperties properties = new ReplicaProperties();
+    properties.getPools().add(pool);
+    MeterRegistry registry = new SimpleMeterRegistry();
+    ReplicaRouter router = new ReplicaRouter(
+        ConnectionFactories.get("r2dbc:h2:mem:///closing-primary?options=DB_CLOSE_DELAY=-1"), properties, registry);
+
+    router.checkHealth().block();
+    assertThat(registry.get("someentity.replica.healthy").gauge().value()).isEqualTo(1);
+
+    router.close();
+    assertThat(registry.get("r2dbc.pool.allocated").tag("name", "closing").gauge().value()).isZero();
+    // A closed pool hands out nothing, so the replica can only be reported down
+    router.checkHealth().block();
+    assertThat(registry.get("someentity.replica.healthy").gauge().value()).isZero();
+  }
+}
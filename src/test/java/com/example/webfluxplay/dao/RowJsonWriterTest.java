@@ -0,0 +1,66 @@
+package com.example.webfluxplay.dao;
+
+import com.example.webfluxplay.model.SomeEntity;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RowJsonWriterTest {
+
+  private final List<NettyDataBuffer> allocated = new ArrayList<>();
+  private final NettyDataBufferFactory bufferFactory = new NettyDataBufferFactory(UnpooledByteBufAllocator.DEFAULT) {
+    @Override
+    public NettyDataBuffer allocateBuffer(int initialCapacity) {
+      NettyDataBuffer buffer = super.allocateBuffer(initialCapacity);
+      allocated.add(buffer);
+      return buffer;
+    }
+  };
+
+  @Test
+  void release_shouldFreeTheCurrentBuffer_andIgnoreLaterWrites() {
+    RowJsonWriter writer = new RowJsonWriter(bufferFactory, 1024, true);
+    assertThat(writer.write(entity(1L))).isEmpty();
+
+    writer.release();
+    writer.release();
+
+    assertThat(writer.write(entity(2L))).isEmpty();
+    assertThat(writer.finish()).isEmpty();
+    assertThat(writer.rows()).isEqualTo(1);
+    assertThat(allocated).allMatch(buffer -> buffer.getNativeBuffer().refCnt() == 0);
+  }
+
+  @Test
+  void discard_shouldFreeChunks_bareOrWrapped() {
+    RowJsonWriter writer = new RowJsonWriter(bufferFactory, 1, true);
+    Optional<DataBuffer> wrapped = writer.write(entity(1L));
+    Optional<DataBuffer> bare = writer.write(entity(2L));
+    assertThat(wrapped).isPresent();
+    assertThat(bare).isPresent();
+
+    RowJsonWriter.discard(wrapped);
+    RowJsonWriter.discard(bare.get());
+    RowJsonWriter.discard(Optional.empty());
+    RowJsonWriter.discard(entity(3L));
+    writer.release();
+
+    assertThat(allocated).hasSize(3).allMatch(buffer -> buffer.getNativeBuffer().refCnt() == 0);
+  }
+
+  private static SomeEntity entity(Long id) {
+    SomeEntity entity = new SomeEntity();
+    entity.setId(id);
+    entity.setSvalue("row-" + id);
+    entity.setVersion(0L);
+    return entity;
+  }
+}
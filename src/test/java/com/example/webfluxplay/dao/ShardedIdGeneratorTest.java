@@ -0,0 +1,43 @@
+package com.example.webfluxplay.dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ShardedIdGeneratorTest {
+
+  @Test
+  void next_shouldEncodeShard_andStayUniqueThroughBursts() {
+    long now = ShardedIdGenerator.EPOCH + 1_000;
+    ShardedIdGenerator generator = new ShardedIdGenerator(3, 4, () -> now);
+
+    Set<Long> seen = new HashSet<>();
+    long previous = 0;
+    // Far more than one millisecond's sequence on a frozen clock
+    for (int i = 0; i < 2_000; i++) {
+      long id = generator.next(2);
+      assertThat(id).isGreaterThan(previous);
+      assertThat(ShardedIdGenerator.shardOf(id)).isEqualTo(2);
+      assertThat(seen.add(id)).isTrue();
+      previous = id;
+    }
+    assertThat(ShardedIdGenerator.shardOf(generator.next(0))).isZero();
+  }
+
+  @Test
+  void next_shouldNotRepeat_whenTheClockStepsBack() {
+    long[] now = {ShardedIdGenerator.EPOCH + 10_000};
+    ShardedIdGenerator generator = new ShardedIdGenerator(0, 1, () -> now[0]);
+
+    long before = generator.next(0);
+    now[0] -= 5_000;
+
+    assertThat(generator.next(0)).isGreaterThan(before);
+    assertThatThrownBy(() -> new ShardedIdGenerator(0, ShardedIdGenerator.MAX_SHARDS + 1))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
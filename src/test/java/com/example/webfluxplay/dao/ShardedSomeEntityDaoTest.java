@@ -0,0 +1,169 @@
+package com.example.webfluxplay.dao;
+
+import com.example.webfluxplay.model.ItemResult;
+import com.example.webfluxplay.model.SomeEntity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.dao.R2dbcDao;
+import io.r2dbc.spi.ConnectionFactories;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Three in-memory H2 databases stand in for the shards
+@SpringBootTest(properties = {
+    "someentity.sharding.enabled=true",
+    "someentity.sharding.shards[0].url=r2dbc:h2:mem:///shard0?options=DB_CLOSE_DELAY=-1",
+    "someentity.sharding.shards[1].url=r2dbc:h2:mem:///shard1?options=DB_CLOSE_DELAY=-1",
+    "someentity.sharding.shards[2].url=r2dbc:h2:mem:///shard2?options=DB_CLOSE_DELAY=-1"
+})
+class ShardedSomeEntityDaoTest {
+
+  @Autowired
+  private SomeEntityRepository dao;
+
+  @Autowired
+  private ShardingProperties shardingProperties;
+
+  @BeforeEach
+  void setUp() {
+    dao.findAll()
+        .flatMap(e -> dao.deleteById(e.getId()))
+        .blockLast();
+  }
+
+  @Test
+  void saveAll_shouldSpreadRowsOverShards_andMergeReadsInIdOrder() {
+    List<SomeEntity> saved = dao.saveAll(IntStream.range(0, 30).mapToObj(i -> entity("v" + i)).toList())
+        .collectList().block();
+
+    assertThat(dao).isInstanceOf(ShardedSomeEntityDao.class);
+    assertThat(saved).allMatch(e -> e.getId() != null && e.getVersion() == 0L);
+    for (int shard = 0; shard < 3; shard++) {
+      int index = shard;
+      assertThat(idsOnShard(shard))
+          .hasSize(10)
+          .allMatch(id -> ShardedIdGenerator.shardOf(id) == index);
+    }
+    List<Long> expected = saved.stream().map(SomeEntity::getId).sorted().toList();
+    assertThat(dao.findAll().map(SomeEntity::getId).collectList().block()).isEqualTo(expected);
+
+    // Keyset pages across shards: ordered, no gaps or repeats
+    List<Long> paged = new ArrayList<>();
+    long afterId = 0;
+    List<SomeEntity> page;
+    do {
+      page = dao.findPage(afterId, 7).collectList().block();
+      page.forEach(e -> paged.add(e.getId()));
+      if (!page.isEmpty()) {
+        afterId = page.get(page.size() - 1).getId();
+      }
+    } while (page.size() == 7);
+    assertThat(paged).isEqualTo(expected);
+
+    StepVerifier.create(dao.findById(saved.get(4).getId()))
+        .assertNext(found -> assertThat(found.getSvalue()).isEqualTo("v4"))
+        .verifyComplete();
+  }
+
+  @Test
+  void writes_shouldRouteById() {
+    List<SomeEntity> saved = dao.bulkInsert(Flux.range(0, 6).map(i -> entity("bulk" + i))).collectList().block();
+    SomeEntity first = saved.get(0);
+
+    SomeEntity patch = entity("patched");
+    patch.setId(first.getId());
+    patch.setVersion(0L);
+    StepVerifier.create(dao.update(patch))
+        .assertNext(updated -> assertThat(updated.getVersion()).isEqualTo(1L))
+        .verifyComplete();
+    StepVerifier.create(dao.update(patch))
+        .expectError(VersionConflictException.class)
+        .verify();
+
+    SomeEntity stale = entity("stale");
+    stale.setId(saved.get(1).getId());
+    stale.setVersion(5L);
+    assertThat(dao.updateAll(Flux.just(stale, patchOf(saved.get(2)))).map(ItemResult::getStatus).collectList().block())
+        .containsExactly(ItemResult.Status.CONFLICT, ItemResult.Status.UPDATED);
+
+    assertThat(dao.deleteAllById(Flux.just(saved.get(3).getId(), saved.get(4).getId(), 42L))
+        .map(ItemResult::getStatus).collectList().block())
+        .containsExactly(ItemResult.Status.DELETED, ItemResult.Status.DELETED, ItemResult.Status.NOT_FOUND);
+    assertThat(dao.findBySvaluePrefix("bulk", null, 0, 10).map(SomeEntity::getSvalue).collectList().block())
+        .containsExactlyInAnyOrder("bulk1", "bulk2!", "bulk5");
+  }
+
+  @Test
+  void svalueShardKey_shouldKeepEqualValuesTogether() {
+    shardingProperties.setShardKey(ShardingProperties.ShardKey.SVALUE);
+    ShardedSomeEntityDao bySvalue = new ShardedSomeEntityDao(new H2Dialect(), shardingProperties,
+        new CacheProperties(), new BatchingProperties(), new BulkInsertProperties(), new ChangeStreamProperties(),
+        new SimpleMeterRegistry());
+    try {
+      List<SomeEntity> saved = bySvalue.saveAll(List.of(entity("same"), entity("same"), entity("same"), entity("same")))
+          .collectList().block();
+
+      assertThat(saved).extracting(e -> ShardedIdGenerator.shardOf(e.getId())).containsOnly(Math.floorMod("same".hashCode(), 3));
+      assertThat(dao.findBySvalue("same", 0, 10).collectList().block()).hasSize(4);
+    } finally {
+      shardingProperties.setShardKey(ShardingProperties.ShardKey.ID);
+      bySvalue.destroy();
+    }
+  }
+
+  @Test
+  void ids_shouldBeMisses_whenTheyNameAShardThatIsNotConfigured() {
+    long foreign = new ShardedIdGenerator(0, ShardedIdGenerator.MAX_SHARDS).next(3);
+    SomeEntity saved = dao.save(entity("kept")).block();
+
+    StepVerifier.create(dao.findById(foreign)).verifyComplete();
+    StepVerifier.create(dao.deleteById(foreign)).verifyComplete();
+    StepVerifier.create(dao.update(foreign, e -> e))
+        .expectErrorMessage("Entity not found")
+        .verify();
+    StepVerifier.create(dao.deleteAllById(Flux.just(foreign, saved.getId(), foreign)))
+        .assertNext(result -> assertThat(result.getStatus()).isEqualTo(ItemResult.Status.NOT_FOUND))
+        .assertNext(result -> assertThat(result.getStatus()).isEqualTo(ItemResult.Status.DELETED))
+        .assertNext(result -> assertThat(result.getStatus()).isEqualTo(ItemResult.Status.NOT_FOUND))
+        .verifyComplete();
+  }
+
+  @Test
+  void bulkInsert_shouldAnswerInInputOrder_acrossShards() {
+    List<String> values = IntStream.range(0, 500).mapToObj(i -> "ordered" + i).toList();
+
+    List<SomeEntity> saved = dao.bulkInsert(Flux.fromIterable(values).map(ShardedSomeEntityDaoTest::entity))
+        .collectList().block();
+
+    assertThat(saved).extracting(SomeEntity::getSvalue).containsExactlyElementsOf(values);
+    assertThat(saved).extracting(e -> ShardedIdGenerator.shardOf(e.getId())).containsOnly(0, 1, 2);
+    assertThat(dao.findAll().count().block()).isEqualTo(500L);
+  }
+
+  private List<Long> idsOnShard(int shard) {
+    return new R2dbcDao(ConnectionFactories.get("r2dbc:h2:mem:///shard" + shard + "?options=DB_CLOSE_DELAY=-1"))
+        .select("SELECT id FROM some_entity", (row, meta) -> row.get("id", Long.class))
+        .collectList().block();
+  }
+
+  private static SomeEntity patchOf(SomeEntity saved) {
+    SomeEntity patch = entity(saved.getSvalue() + "!");
+    patch.setId(saved.getId());
+    return patch;
+  }
+
+  private static SomeEntity entity(String svalue) {
+    SomeEntity entity = new SomeEntity();
+    entity.setSvalue(svalue);
+    return entity;
+  }
+}
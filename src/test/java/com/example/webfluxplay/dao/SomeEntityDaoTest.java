@@ -1,14 +1,34 @@
 package com.example.webfluxplay.dao;
 
 import com.example.webfluxplay.model.SomeEntity;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.r2dbc.pool.PoolMetrics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
 import reactor.test.StepVerifier;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @SpringBootTest
 class SomeEntityDaoTest {
@@ -16,11 +36,17 @@ class SomeEntityDaoTest {
   @Autowired
   private SomeEntityDao dao;
 
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
   @BeforeEach
   void setUp() {
     // Since the DB is persistent in memory (DB_CLOSE_DELAY=-1),
     // we must clean up and ensure the table exists before every test.
-    // The ApplicationReadyEvent in main might have run, but we want a clean slate.
+    // The startup runner in main has already initialized the schema, but we want a clean slate.
 
     dao.createTable().blockLast();
 
@@ -46,6 +72,41 @@ class SomeEntityDaoTest {
         .verifyComplete();
   }
 
+  @Test
+  void initialize_shouldBeRepeatable_andKeepExistingRows() {
+    SomeEntity entity = new SomeEntity();
+    entity.setSvalue("survivor");
+    SomeEntity saved = dao.save(entity).block();
+
+    dao.initialize().block();
+
+    StepVerifier.create(dao.findAll())
+        .expectNextMatches(e -> e.getId().equals(saved.getId()) && "survivor".equals(e.getSvalue()))
+        .verifyComplete();
+  }
+
+  @Test
+  void findBySvalue_shouldMatchExactlyOrByLiteralPrefix_inKeysetPages() {
+    List<SomeEntity> saved = dao.saveAll(Arrays.asList(
+            entity("50%_off"), entity("50x_off"), entity("50%_offer"), entity("500"), entity("50%_off")))
+        .collectList().block();
+
+    StepVerifier.create(dao.findBySvalue("50%_off", 0L, 10).map(SomeEntity::getId))
+        .expectNext(saved.get(0).getId(), saved.get(4).getId())
+        .verifyComplete();
+
+    // % and _ in the prefix are literal characters, not wildcards; pages run in (svalue, id) order
+    StepVerifier.create(dao.findBySvaluePrefix("50%_", null, 0L, 2).map(SomeEntity::getId))
+        .expectNext(saved.get(0).getId(), saved.get(4).getId())
+        .verifyComplete();
+    StepVerifier.create(dao.findBySvaluePrefix("50%_", "50%_off", saved.get(4).getId(), 2).map(SomeEntity::getId))
+        .expectNext(saved.get(2).getId())
+        .verifyComplete();
+    StepVerifier.create(dao.findBySvaluePrefix("50%_", "50%_off", saved.get(0).getId(), 2).map(SomeEntity::getId))
+        .expectNext(saved.get(4).getId(), saved.get(2).getId())
+        .verifyComplete();
+  }
+
   @Test
   void findById_shouldReturnEntity_whenExists() {
     SomeEntity entity = new SomeEntity();
@@ -61,7 +122,7 @@ class SomeEntityDaoTest {
   }
 
   @Test
-  void update_shouldModifyEntity_inTransaction() {
+  void update_shouldModifyEntity() {
     // 1. Create
     SomeEntity original = new SomeEntity();
     original.setSvalue("original");
@@ -87,6 +148,72 @@ class SomeEntityDaoTest {
         .verifyComplete();
   }
 
+  @Test
+  void update_shouldKeepStoredValue_whenPayloadValueIsNull() {
+    SomeEntity original = new SomeEntity();
+    original.setSvalue("keep-me");
+    SomeEntity saved = dao.save(original).block();
+
+    SomeEntity payload = new SomeEntity();
+    payload.setId(saved.getId());
+
+    StepVerifier.create(dao.update(payload).map(SomeEntity::getSvalue))
+        .expectNext("keep-me")
+        .verifyComplete();
+  }
+
+  @Test
+  void update_shouldFail_whenIdDoesNotExist() {
+    SomeEntity payload = new SomeEntity();
+    payload.setId(Long.MAX_VALUE);
+    payload.setSvalue("nobody");
+
+    StepVerifier.create(dao.update(payload))
+        .expectError(IllegalArgumentException.class)
+        .verify();
+  }
+
+  @Test
+  void update_shouldCompareAndSet_whenPayloadHasVersion() {
+    SomeEntity original = new SomeEntity();
+    original.setSvalue("cas");
+    SomeEntity saved = dao.save(original).block();
+
+    SomeEntity first = new SomeEntity();
+    first.setId(saved.getId());
+    first.setSvalue("first");
+    first.setVersion(0L);
+    StepVerifier.create(dao.update(first).map(SomeEntity::getVersion))
+        .expectNext(1L)
+        .verifyComplete();
+
+    SomeEntity stale = new SomeEntity();
+    stale.setId(saved.getId());
+    stale.setSvalue("stale");
+    stale.setVersion(0L);
+    StepVerifier.create(dao.update(stale))
+        .expectError(VersionConflictException.class)
+        .verify();
+  }
+
+  @Test
+  void updateWithChanges_shouldReadModifyWrite() {
+    SomeEntity original = new SomeEntity();
+    original.setSvalue("abc");
+    SomeEntity saved = dao.save(original).block();
+
+    StepVerifier.create(dao.update(saved.getId(), existing -> {
+          existing.setSvalue(existing.getSvalue().toUpperCase());
+          return existing;
+        }).map(e -> e.getSvalue() + "@" + e.getVersion()))
+        .expectNext("ABC@1")
+        .verifyComplete();
+
+    StepVerifier.create(dao.findById(saved.getId()).map(SomeEntity::getSvalue))
+        .expectNext("ABC")
+        .verifyComplete();
+  }
+
   @Test
   void saveAll_shouldPersistBatch() {
     SomeEntity e1 = new SomeEntity(); e1.setSvalue("batch-1");
@@ -114,4 +241,281 @@ class SomeEntityDaoTest {
     StepVerifier.create(dao.findById(saved.getId()))
         .verifyComplete(); // Expect empty
   }
-}
\ No newline at end of file
+
+  @Test
+  void findPage_shouldReturnRowsAfterCursor() {
+    SomeEntity e1 = new SomeEntity(); e1.setSvalue("page-1");
+    SomeEntity e2 = new SomeEntity(); e2.setSvalue("page-2");
+    SomeEntity e3 = new SomeEntity(); e3.setSvalue("page-3");
+    dao.saveAll(Arrays.asList(e1, e2, e3)).blockLast();
+
+    StepVerifier.create(dao.findPage(e1.getId(), 1))
+        .assertNext(found -> {
+          if (!found.getId().equals(e2.getId())) throw new AssertionError("Cursor not respected");
+        })
+        .verifyComplete();
+
+    StepVerifier.create(dao.streamAll(2))
+        .expectNextCount(3)
+        .verifyComplete();
+  }
+
+  @Test
+  void findById_shouldServeRepeatReadsFromCache_andSeeUpdates() {
+    SomeEntity entity = new SomeEntity();
+    entity.setSvalue("cached");
+    SomeEntity saved = dao.save(entity).block();
+
+    long hitsBefore = dao.cacheStats().hitCount();
+    dao.findById(saved.getId()).block();
+    dao.findById(saved.getId()).block();
+    if (dao.cacheStats().hitCount() <= hitsBefore) throw new AssertionError("Expected a cache hit");
+
+    SomeEntity updatePayload = new SomeEntity();
+    updatePayload.setId(saved.getId());
+    updatePayload.setSvalue("changed");
+    dao.update(updatePayload).block();
+
+    StepVerifier.create(dao.findById(saved.getId()))
+        .assertNext(found -> {
+          if (!"changed".equals(found.getSvalue())) throw new AssertionError("Stale cache entry");
+        })
+        .verifyComplete();
+  }
+
+  @Test
+  void findById_shouldResolveConcurrentCallsIndividually() {
+    SomeEntity e1 = new SomeEntity(); e1.setSvalue("concurrent-1");
+    SomeEntity e2 = new SomeEntity(); e2.setSvalue("concurrent-2");
+    dao.saveAll(Arrays.asList(e1, e2)).blockLast();
+
+    StepVerifier.create(Flux.merge(
+            dao.findById(e1.getId()),
+            dao.findById(e2.getId()),
+            dao.findById(-1L))
+            .collectMap(SomeEntity::getId, SomeEntity::getSvalue))
+        .assertNext(found -> {
+          if (found.size() != 2) throw new AssertionError("Expected two hits and one miss");
+          if (!"concurrent-1".equals(found.get(e1.getId()))) throw new AssertionError("Wrong row for id 1");
+          if (!"concurrent-2".equals(found.get(e2.getId()))) throw new AssertionError("Wrong row for id 2");
+        })
+        .verifyComplete();
+  }
+
+  @Test
+  void pool_shouldPublishGaugesAndAcquireLatency() {
+    dao.findAll().blockLast();
+
+    if (dao.poolMetrics().getMaxAllocatedSize() != 10) throw new AssertionError("Pool size not taken from properties");
+    if (meterRegistry.find("r2dbc.pool.acquired").tag("name", "h2").gauge() == null) throw new AssertionError("Missing gauge");
+    if (meterRegistry.get("r2dbc.pool.acquire").tag("name", "h2").timer().count() == 0) throw new AssertionError("Acquire not timed");
+  }
+
+  @Test
+  void bulkInsert_shouldAssignEachEntityItsOwnId_inInputOrder() {
+    Flux<SomeEntity> input = Flux.range(0, 2500).map(i -> {
+      SomeEntity e = new SomeEntity();
+      e.setSvalue("bulk-" + i);
+      return e;
+    });
+
+    List<SomeEntity> saved = dao.bulkInsert(input).collectList().block();
+
+    if (saved.size() != 2500) throw new AssertionError("Expected 2500 rows, got " + saved.size());
+    for (int i = 0; i < saved.size(); i++) {
+      if (!("bulk-" + i).equals(saved.get(i).getSvalue())) throw new AssertionError("Output out of order at " + i);
+    }
+    Map<Long, String> stored = dao.findAll().collectMap(SomeEntity::getId, SomeEntity::getSvalue).block();
+    for (SomeEntity e : saved) {
+      if (!e.getSvalue().equals(stored.get(e.getId()))) throw new AssertionError("Id " + e.getId() + " not correlated");
+    }
+  }
+
+  @Test
+  void updateAll_shouldReportEveryItemInOrder() {
+    SomeEntity a = new SomeEntity(); a.setSvalue("a");
+    SomeEntity b = new SomeEntity(); b.setSvalue("b");
+    List<SomeEntity> saved = dao.saveAll(Arrays.asList(a, b)).collectList().block();
+
+    SomeEntity plain = new SomeEntity();
+    plain.setId(saved.get(0).getId());
+    plain.setSvalue("a2");
+    SomeEntity stale = new SomeEntity();
+    stale.setId(saved.get(1).getId());
+    stale.setSvalue("b2");
+    stale.setVersion(7L);
+    SomeEntity missing = new SomeEntity();
+    missing.setId(Long.MAX_VALUE);
+    missing.setSvalue("nobody");
+
+    StepVerifier.create(dao.updateAll(Flux.just(plain, stale, missing))
+            .map(r -> r.getId() + ":" + r.getStatus()))
+        .expectNext(plain.getId() + ":UPDATED")
+        .expectNext(stale.getId() + ":CONFLICT")
+        .expectNext(Long.MAX_VALUE + ":NOT_FOUND")
+        .verifyComplete();
+
+    StepVerifier.create(dao.findById(plain.getId()).map(e -> e.getSvalue() + "@" + e.getVersion()))
+        .expectNext("a2@1")
+        .verifyComplete();
+  }
+
+  @Test
+  void deleteAllById_shouldDeleteInChunks_andReportMisses() {
+    List<SomeEntity> saved = dao.bulkInsert(Flux.range(0, 2500).map(i -> {
+      SomeEntity e = new SomeEntity();
+      e.setSvalue("gone-" + i);
+      return e;
+    })).collectList().block();
+
+    Flux<Long> ids = Flux.fromIterable(saved).map(SomeEntity::getId).concatWithValues(Long.MAX_VALUE);
+    Map<String, Long> counts = dao.deleteAllById(ids)
+        .collect(Collectors.groupingBy(r -> r.getStatus().name(), Collectors.counting()))
+        .block();
+
+    if (counts.get("DELETED") != 2500L) throw new AssertionError("Expected 2500 deletes, got " + counts);
+    if (counts.get("NOT_FOUND") != 1L) throw new AssertionError("Expected one miss, got " + counts);
+    StepVerifier.create(dao.findAll()).verifyComplete();
+  }
+
+  @Test
+  void directJson_shouldMatchDatabindOutput_acrossChunks() throws Exception {
+    dao.bulkInsert(Flux.range(0, 50).map(i -> {
+      SomeEntity e = new SomeEntity();
+      // Quotes, backslashes and non-ASCII exercise the escaping
+      e.setSvalue("json-\"" + i + "\"\\ \u00e9\u4e2d");
+      return e;
+    })).blockLast();
+
+    List<SomeEntity> expected = dao.findPage(0, 1000).collectList().block();
+
+    // Small chunks force the rows across many buffers
+    List<DataBuffer> ndjson = dao.streamAllJson(16, DefaultDataBufferFactory.sharedInstance, 64).collectList().block();
+    if (ndjson.size() < 10) throw new AssertionError("Expected many chunks, got " + ndjson.size());
+    List<SomeEntity> lines = Arrays.stream(text(ndjson).split("\n"))
+        .map(line -> read(line, SomeEntity.class))
+        .toList();
+
+    JsonPage page = dao.findPageJson(0, 1000, DefaultDataBufferFactory.sharedInstance, 64).block();
+    if (page.rows() != expected.size()) throw new AssertionError("Row count mismatch");
+    if (!page.lastId().equals(expected.get(expected.size() - 1).getId())) throw new AssertionError("Wrong last id");
+    SomeEntity[] array = read(text(page.chunks()), SomeEntity[].class);
+
+    String want = objectMapper.writeValueAsString(expected);
+    if (!want.equals(objectMapper.writeValueAsString(lines))) throw new AssertionError("NDJSON differs");
+    if (!want.equals(objectMapper.writeValueAsString(array))) throw new AssertionError("JSON page differs");
+  }
+
+  @Test
+  void directJson_shouldReleaseEveryBuffer_whenTheSubscriberCancels() throws InterruptedException {
+    dao.saveAll(IntStream.range(0, 500).mapToObj(i -> entity("released-" + i)).toList()).blockLast();
+    List<NettyDataBuffer> allocated = new CopyOnWriteArrayList<>();
+    NettyDataBufferFactory bufferFactory = new NettyDataBufferFactory(UnpooledByteBufAllocator.DEFAULT) {
+      @Override
+      public NettyDataBuffer allocateBuffer(int initialCapacity) {
+        NettyDataBuffer buffer = super.allocateBuffer(initialCapacity);
+        allocated.add(buffer);
+        return buffer;
+      }
+    };
+
+    // Delivered chunks are the subscriber's to release; the rest, queued or still being written, are not
+    dao.streamAllJson(16, bufferFactory, 64).take(3).doOnNext(DataBufferUtils::release).blockLast();
+
+    long deadline = System.nanoTime() + Duration.ofSeconds(2).toNanos();
+    while (allocated.stream().anyMatch(buffer -> buffer.getNativeBuffer().refCnt() > 0)) {
+      if (System.nanoTime() > deadline) throw new AssertionError("Undelivered JSON chunks were not released");
+      Thread.sleep(10);
+    }
+    if (allocated.size() < 4) throw new AssertionError("Expected chunks beyond the three taken, got " + allocated.size());
+  }
+
+  @Test
+  void deadline_shouldBoundOperations_andFailFastOnceExpired() {
+    dao.save(entity("in-time")).block();
+
+    StepVerifier.create(dao.findAll().contextWrite(context -> Deadline.after(context, Duration.ofSeconds(5))))
+        .expectNextMatches(e -> "in-time".equals(e.getSvalue()))
+        .verifyComplete();
+
+    double acquiredBefore = meterRegistry.get("r2dbc.pool.acquire").tag("name", "h2").timer().count();
+    StepVerifier.create(dao.findAll().contextWrite(context -> Deadline.after(context, Duration.ZERO)))
+        .verifyError(DeadlineExceededException.class);
+    if (meterRegistry.get("r2dbc.pool.acquire").tag("name", "h2").timer().count() != acquiredBefore) {
+      throw new AssertionError("An expired deadline should not take a connection");
+    }
+
+    // Work still running at the deadline is cancelled
+    StepVerifier.create(Deadline.bound(Flux.never()).contextWrite(context -> Deadline.after(context, Duration.ofMillis(50))))
+        .verifyError(DeadlineExceededException.class);
+  }
+
+  @Test
+  void deadline_shouldReachPointReads_throughTheCacheAndBatcher_andCancelTheirLoad() throws InterruptedException {
+    ConnectionPoolProperties pool = new ConnectionPoolProperties();
+    pool.setName("one-connection");
+    pool.setUrl("r2dbc:h2:mem:///oneconnection?options=DB_CLOSE_DELAY=-1");
+    pool.setInitialSize(1);
+    pool.setMaxSize(1);
+    SomeEntityDao small = new SomeEntityDao(new H2Dialect(), pool, new CacheProperties(), new BatchingProperties(),
+        new BulkInsertProperties(), new ChangeStreamProperties(), new ReplicaProperties(), new IdProperties(),
+        new SimpleMeterRegistry());
+    try {
+      small.initialize().block();
+      List<SomeEntity> saved = small.saveAll(List.of(entity("a"), entity("b"), entity("c"))).collectList().block();
+
+      // A stream that is never asked for its second row keeps the only connection
+      BaseSubscriber<SomeEntity> holder = new BaseSubscriber<>() {
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+          subscription.request(1);
+        }
+      };
+      small.streamAll(1).subscribe(holder);
+      awaitPool(small, metrics -> metrics.acquiredSize() == 1, "The stream should hold the connection");
+
+      StepVerifier.create(small.findById(saved.get(0).getId())
+              .contextWrite(context -> Deadline.after(context, Duration.ofMillis(200))))
+          .expectError(DeadlineExceededException.class)
+          .verify(Duration.ofSeconds(5));
+      // Without the deadline the load would still be queued for the connection, with no one waiting for it
+      awaitPool(small, metrics -> metrics.pendingAcquireSize() == 0, "The abandoned load should not wait for a connection");
+
+      holder.dispose();
+      awaitPool(small, metrics -> metrics.acquiredSize() == 0, "The stream should give the connection back");
+      StepVerifier.create(small.findById(saved.get(0).getId()))
+          .expectNextMatches(found -> "a".equals(found.getSvalue()))
+          .verifyComplete();
+    } finally {
+      small.destroy();
+    }
+  }
+
+  private static void awaitPool(SomeEntityDao dao, Predicate<PoolMetrics> condition, String message) throws InterruptedException {
+    long deadline = System.nanoTime() + Duration.ofSeconds(2).toNanos();
+    while (!condition.test(dao.poolMetrics())) {
+      if (System.nanoTime() > deadline) throw new AssertionError(message);
+      Thread.sleep(10);
+    }
+  }
+
+  private static String text(List<DataBuffer> buffers) {
+    StringBuilder text = new StringBuilder();
+    buffers.forEach(buffer -> text.append(buffer.toString(StandardCharsets.UTF_8)));
+    return text.toString();
+  }
+
+  private <T> T read(String json, Class<T> type) {
+    try {
+      return objectMapper.readValue(json, type);
+    } catch (Exception e) {
+      throw new AssertionError("Invalid JSON: " + json, e);
+    }
+  }
+
+  private static SomeEntity entity(String svalue) {
+    SomeEntity entity = new SomeEntity();
+    entity.setSvalue(svalue);
+    return entity;
+  }
+}
@@ -0,0 +1,73 @@
+package com.example.webfluxplay.dao;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SqlDialectTest {
+
+  @Test
+  void of_shouldResolveDialectsByName() {
+    assertThat(SqlDialect.of("h2")).isInstanceOf(H2Dialect.class);
+    assertThat(SqlDialect.of("MSSQL")).isInstanceOf(MsSqlDialect.class);
+    assertThatThrownBy(() -> SqlDialect.of("oracle")).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void schema_shouldOnlyCreateWhatIsMissing() {
+    assertThat(new H2Dialect().createTable()).startsWith("CREATE TABLE IF NOT EXISTS");
+    assertThat(new MsSqlDialect().createTable())
+        .startsWith("IF OBJECT_ID(N'some_entity', N'U') IS NULL")
+        .doesNotContain("DROP");
+    assertThat(new H2Dialect().createTable()).contains("CREATE INDEX IF NOT EXISTS ix_some_entity_svalue ON some_entity (svalue, id)");
+    assertThat(new MsSqlDialect().createTable()).contains("CREATE INDEX ix_some_entity_svalue ON some_entity (svalue, id)");
+    assertThat(new H2Dialect().createTable(false)).contains("id BIGINT PRIMARY KEY");
+    assertThat(new MsSqlDialect().createTable(false)).contains("id BIGINT NOT NULL PRIMARY KEY").doesNotContain("IDENTITY");
+    assertThat(new H2Dialect().createIdSequence()).startsWith("CREATE SEQUENCE IF NOT EXISTS some_entity_hilo");
+    assertThat(new MsSqlDialect().createIdSequence()).startsWith("IF OBJECT_ID(N'some_entity_hilo', N'SO') IS NULL");
+    assertThat(new H2Dialect().migrateSchema()).contains("ADD COLUMN IF NOT EXISTS version");
+    assertThat(new MsSqlDialect().migrateSchema()).startsWith("IF COL_LENGTH(N'some_entity', N'version') IS NULL");
+  }
+
+  @Test
+  void escapeLike_shouldEscapeDialectWildcards() {
+    assertThat(new H2Dialect().escapeLike("50%_off\\[x]")).isEqualTo("50\\%\\_off\\\\[x]");
+    assertThat(new MsSqlDialect().escapeLike("50%_off[x]")).isEqualTo("50\\%\\_off\\[x]");
+  }
+
+  @Test
+  void multiRowInsert_shouldUseDialectBindMarkers() {
+    assertThat(new H2Dialect().multiRowInsert(2))
+        .isEqualTo("INSERT INTO some_entity (svalue) VALUES ($1), ($2)");
+    assertThat(new MsSqlDialect().multiRowInsert(2))
+        .isEqualTo("INSERT INTO some_entity (svalue) VALUES (@svalue0), (@svalue1)");
+  }
+
+  @Test
+  void multiRowInsertWithIds_shouldBindIdThenSvalue() {
+    assertThat(new H2Dialect().multiRowInsertWithIds(2))
+        .isEqualTo("INSERT INTO some_entity (id, svalue) VALUES ($1, $2), ($3, $4)");
+    assertThat(new MsSqlDialect().multiRowInsertWithIds(2))
+        .isEqualTo("INSERT INTO some_entity (id, svalue) VALUES (@id0, @svalue0), (@id1, @svalue1)");
+  }
+
+  @Test
+  void updateReturning_shouldMergeInSql() {
+    assertThat(new H2Dialect().updateReturning(false))
+        .contains("FINAL TABLE", "COALESCE($1, svalue)", "version = version + 1", "id = $2")
+        .doesNotContain("$3");
+    assertThat(new H2Dialect().updateReturning(true)).endsWith("AND version = $3)");
+    assertThat(new MsSqlDialect().updateReturning(true))
+        .contains("COALESCE(@svalue, svalue)", "OUTPUT INSERTED.id, INSERTED.svalue, INSERTED.version")
+        .endsWith("WHERE id = @id AND version = @version");
+  }
+
+  @Test
+  void deleteReturningIds_shouldListOneMarkerPerId() {
+    assertThat(new H2Dialect().deleteReturningIds(3))
+        .isEqualTo("SELECT id FROM OLD TABLE (DELETE FROM some_entity WHERE id IN ($1, $2, $3))");
+    assertThat(new MsSqlDialect().deleteReturningIds(2))
+        .isEqualTo("DELETE FROM some_entity OUTPUT DELETED.id WHERE id IN (@id0, @id1)");
+  }
+}
@@ -0,0 +1,42 @@
+package com.example.webfluxplay.dao;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StatementRegistryTest {
+
+  @Test
+  void get_shouldBuildEachShapeOnce_andCountUses() {
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    StatementRegistry registry = new StatementRegistry(meterRegistry);
+    int[] built = {0};
+
+    for (int i = 0; i < 3; i++) {
+      String sql = registry.get("selectByIds", 4, n -> {
+        built[0]++;
+        return "IN " + n;
+      });
+      assertThat(sql).isEqualTo("IN 4");
+    }
+
+    assertThat(built[0]).isEqualTo(1);
+    assertThat(meterRegistry.get("someentity.statements.built").tag("statement", "selectByIds").counter().count())
+        .isEqualTo(1);
+    assertThat(meterRegistry.get("someentity.statements.uses").tag("statement", "selectByIds").counter().count())
+        .isEqualTo(3);
+  }
+
+  @Test
+  void padded_shouldRoundUpToPowerOfTwo_withinCap() {
+    assertThat(StatementRegistry.bucket(1, 1000)).isEqualTo(1);
+    assertThat(StatementRegistry.bucket(3, 1000)).isEqualTo(4);
+    assertThat(StatementRegistry.bucket(64, 1000)).isEqualTo(64);
+    assertThat(StatementRegistry.bucket(600, 1000)).isEqualTo(1000);
+    assertThat(StatementRegistry.padded(List.of(7L, 8L, 9L), 1000)).containsExactly(7L, 8L, 9L, 9L);
+  }
+}